@@ -0,0 +1,47 @@
+package com.cs.pagescrollview.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Classification of recorded move samples, a mix of slow drags, flicks and
+ * horizontal swipes at xxhdpi values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GestureClassifierBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final GestureClassifier mClassifier = new GestureClassifier(96, 1200, 24000, 3);
+    private final float[] mDx = new float[SAMPLES];
+    private final float[] mDy = new float[SAMPLES];
+    private final float[] mVx = new float[SAMPLES];
+    private final float[] mVy = new float[SAMPLES];
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            mDx[i] = (random.nextFloat() - 0.5f) * 400;
+            mDy[i] = (random.nextFloat() - 0.5f) * 400;
+            mVx[i] = (random.nextFloat() - 0.5f) * 8000;
+            mVy[i] = (random.nextFloat() - 0.5f) * 16000;
+        }
+    }
+
+    @Benchmark
+    public int classify() {
+        final int i = mNext++ & (SAMPLES - 1);
+        return mClassifier.classify(mDx[i], mDy[i], mVx[i], mVy[i]);
+    }
+}
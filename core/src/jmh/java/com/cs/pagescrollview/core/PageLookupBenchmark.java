@@ -0,0 +1,72 @@
+package com.cs.pagescrollview.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Page break building and page lookups for content from a handful of pages
+ * to a long document, with a child boundary every 48px.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PageLookupBenchmark {
+    private static final int PAGE_HEIGHT = 1920;
+    private static final int ROW_HEIGHT = 48;
+
+    @Param({"10", "500", "20000"})
+    public int pages;
+
+    private final PageBreaks mBreaks = new PageBreaks();
+    private int mContentHeight;
+    private int[] mOffsets;
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mContentHeight = pages * PAGE_HEIGHT;
+        buildBreaks();
+        final Random random = new Random(42);
+        mOffsets = new int[1024];
+        for (int i = 0; i < mOffsets.length; i++) {
+            mOffsets[i] = random.nextInt(mContentHeight);
+        }
+    }
+
+    @Benchmark
+    public int buildBreaks() {
+        mBreaks.clearCandidates();
+        for (int offset = ROW_HEIGHT; offset < mContentHeight; offset += ROW_HEIGHT) {
+            mBreaks.addCandidate(offset);
+        }
+        mBreaks.build(mContentHeight, PAGE_HEIGHT);
+        return mBreaks.getPageCount();
+    }
+
+    @Benchmark
+    public int findPage() {
+        final int offset = mOffsets[mNext++ & (mOffsets.length - 1)];
+        return mBreaks.findPage(offset);
+    }
+
+    @Benchmark
+    public int divisionPage() {
+        final int offset = mOffsets[mNext++ & (mOffsets.length - 1)];
+        return PageMath.getPage(offset + PAGE_HEIGHT, PAGE_HEIGHT);
+    }
+
+    @Benchmark
+    public int moveToPageTarget() {
+        final int page = 1 + (mOffsets[mNext++ & (mOffsets.length - 1)] % mBreaks.getPageCount());
+        return PageMath.getMoveToPageTarget(mBreaks, page, PAGE_HEIGHT, mContentHeight - PAGE_HEIGHT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.cs.pagescrollview.core;
+
+/**
+ * Decides from the finger's displacement and velocity whether a gesture turns
+ * pages, in which direction and how many.
+ */
+public final class GestureClassifier {
+    /**
+     * The gesture is not a page turn yet, keep tracking it
+     */
+    public static final int UNDECIDED = Integer.MIN_VALUE;
+
+    private final int mPagingSlop;
+    private final int mFlingVelocity;
+    private final int mMaxVelocity;
+    private final int mMaxFlingPages;
+    private boolean mVerticalPaging = true;
+    private boolean mHorizontalPaging;
+
+    /**
+     * @param pagingSlop distance that turns a page without a fling
+     * @param flingVelocity velocity that turns a page before the distance is reached
+     * @param maxVelocity the velocity turning {@code maxFlingPages} pages
+     * @param maxFlingPages the most pages one fling may turn
+     */
+    public GestureClassifier(int pagingSlop, int flingVelocity, int maxVelocity, int maxFlingPages) {
+        mPagingSlop = pagingSlop;
+        mFlingVelocity = flingVelocity;
+        mMaxVelocity = maxVelocity;
+        mMaxFlingPages = maxFlingPages;
+    }
+
+    public int getPagingSlop() {
+        return mPagingSlop;
+    }
+
+    public boolean isVerticalPagingEnabled() {
+        return mVerticalPaging;
+    }
+
+    /**
+     * @param enabled turn pages on up/down gestures, up goes forward; enabled by default
+     */
+    public void setVerticalPagingEnabled(boolean enabled) {
+        mVerticalPaging = enabled;
+    }
+
+    public boolean isHorizontalPagingEnabled() {
+        return mHorizontalPaging;
+    }
+
+    /**
+     * @param enabled also turn pages on left/right gestures, left goes forward
+     */
+    public void setHorizontalPagingEnabled(boolean enabled) {
+        mHorizontalPaging = enabled;
+    }
+
+    /**
+     * @return {@link #UNDECIDED}, 0 when the gesture is decided but turns no
+     *         page, or the number of pages to turn, positive forward and
+     *         negative backward
+     */
+    public int classify(float dx, float dy, float vx, float vy) {
+        // Past the slop on an axis that pages, whatever the other axis did
+        boolean startScroll = (mHorizontalPaging && Math.abs(dx) > mPagingSlop)
+                || (mVerticalPaging && Math.abs(dy) > mPagingSlop);
+        // A fast flick commits before the distance threshold, the distance stays as the fallback
+        final boolean flingY = mVerticalPaging && Math.abs(vy) > mFlingVelocity && Math.abs(vy) >= Math.abs(vx) && vy * dy > 0;
+        final boolean flingX = mHorizontalPaging && Math.abs(vx) > mFlingVelocity && vx * dx > 0;
+        if (flingY || flingX) {
+            startScroll = true;
+        }
+        if (!startScroll) {
+            return UNDECIDED;
+        }
+        final float slope = dx != 0 ? Math.abs(dy / dx) : 2; // dy dominates when there is no dx
+        if (slope >= 1) {
+            if (!mVerticalPaging) {
+                return 0;
+            }
+            final int pages = flingY ? getFlingPages(vy) : 1;
+            return dy < 0 ? pages : -pages;
+        }
+        if (mHorizontalPaging) {
+            final int pages = flingX ? getFlingPages(vx) : 1;
+            return dx < 0 ? pages : -pages;
+        }
+        return 0;
+    }
+
+    /**
+     * @return how many pages a fling turns, scaled linearly up to the maximum
+     */
+    int getFlingPages(float velocity) {
+        final float range = mMaxVelocity - mFlingVelocity;
+        if (range <= 0) {
+            return 1;
+        }
+        final float fraction = (Math.abs(velocity) - mFlingVelocity) / range;
+        return Math.min(mMaxFlingPages, 1 + (int) (fraction * mMaxFlingPages));
+    }
+}
@@ -0,0 +1,83 @@
+package com.cs.pagescrollview.core;
+
+/**
+ * Fixed size log-linear histogram of non-negative values. Every power of two
+ * is split into 8 buckets, so a percentile is off by at most 12.5%, and
+ * recording is a few shifts and an increment without allocation.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final long[] mCounts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long mTotal;
+    private long mMax;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts[indexOf(value)]++;
+        mTotal++;
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the largest value that falls into bucket index
+     */
+    private static long highestOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long sub = index % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+
+    public long getCount() {
+        return mTotal;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99 for p99
+     * @return the value percentile percent of the recorded values are at or below,
+     *         0 when nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (mTotal == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mTotal));
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min(highestOf(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+        }
+        mTotal = 0;
+        mMax = 0;
+    }
+}
@@ -0,0 +1,109 @@
+package com.cs.pagescrollview.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Compact binary form of {@link PageBreaks}. The header holds the content
+ * fingerprint and the viewport the breaks were computed for, the page starts
+ * follow as varint encoded deltas, so a document of a few thousand pages
+ * takes a few kilobytes.
+ */
+public final class PageBreakCodec {
+    /**
+     * "PBK" and the format version
+     */
+    private static final int MAGIC = 0x50424b01;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private PageBreakCodec() {
+    }
+
+    /**
+     * 64-bit FNV-1a hash of text, a cheap content key for the stored breaks.
+     */
+    public static long fingerprint(CharSequence text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            final char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @param fingerprint identifies the content the breaks belong to
+     * @param width the viewport width the content was laid out for
+     */
+    public static void write(DataOutput out, long fingerprint, int width, PageBreaks breaks)
+            throws IOException {
+        final int count = breaks.getPageCount();
+        out.writeInt(MAGIC);
+        out.writeLong(fingerprint);
+        out.writeInt(width);
+        out.writeInt(breaks.getPageHeight());
+        out.writeInt(breaks.getContentHeight());
+        writeVarInt(out, count);
+        int previous = 0;
+        for (int page = 1; page <= count; page++) {
+            final int start = breaks.getPageStart(page);
+            writeVarInt(out, start - previous);
+            previous = start;
+        }
+    }
+
+    /**
+     * Reads breaks written by {@link #write} into breaks, unless they were
+     * written for other content or another viewport.
+     *
+     * @return true if breaks was replaced
+     */
+    public static boolean read(DataInput in, long fingerprint, int width, int pageHeight, PageBreaks breaks)
+            throws IOException {
+        if (in.readInt() != MAGIC || in.readLong() != fingerprint
+                || in.readInt() != width || in.readInt() != pageHeight) {
+            return false;
+        }
+        final int contentHeight = in.readInt();
+        final int count = readVarInt(in);
+        if (count < 0 || count > contentHeight / Math.max(1, pageHeight / 2) + 1) {
+            // A page is at least half a page tall, anything else is corrupt
+            return false;
+        }
+        final int[] starts = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            final int delta = readVarInt(in);
+            if (delta < 0 || (i > 0 && delta == 0)) {
+                return false;
+            }
+            previous += delta;
+            starts[i] = previous;
+        }
+        breaks.set(contentHeight, pageHeight, starts, count);
+        return true;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,228 @@
+package com.cs.pagescrollview.core;
+
+import java.util.Arrays;
+
+/**
+ * Sorted start offsets of the pages of some content. Breaks are snapped back
+ * to the nearest boundary candidate so a page does not cut a line or an image
+ * in half, lookups are binary searches.
+ */
+public final class PageBreaks {
+    private int[] mStarts = new int[16];
+    private int mCount;
+    private int[] mCandidates = new int[16];
+    private int mCandidateCount;
+    private int mPageHeight;
+    private int mContentHeight;
+
+    /**
+     * Forgets the candidates of the previous build.
+     */
+    public void clearCandidates() {
+        mCandidateCount = 0;
+    }
+
+    /**
+     * Adds an offset a page may start at, such as the top of a child or a line.
+     */
+    public void addCandidate(int offset) {
+        if (mCandidateCount == mCandidates.length) {
+            mCandidates = grow(mCandidates);
+        }
+        mCandidates[mCandidateCount++] = offset;
+    }
+
+    /**
+     * Rebuilds the breaks from the candidates added since {@link #clearCandidates()}.
+     *
+     * @param contentHeight the height of the content
+     * @param pageHeight the height of a page
+     */
+    public void build(int contentHeight, int pageHeight) {
+        build(contentHeight, pageHeight, 0);
+    }
+
+    /**
+     * Rebuilds the breaks after the first validPages pages, which are kept as
+     * they are. Only candidates after the start of the last kept page are
+     * needed.
+     *
+     * @param contentHeight the height of the content
+     * @param pageHeight the height of a page
+     * @param validPages from {@link #getValidPageCount(int)}, 0 rebuilds everything
+     */
+    public void build(int contentHeight, int pageHeight, int validPages) {
+        if (pageHeight != mPageHeight || validPages > mCount) {
+            validPages = 0;
+        }
+        mPageHeight = pageHeight;
+        mContentHeight = contentHeight;
+        if (pageHeight <= 0 || contentHeight <= 0) {
+            mCount = 0;
+            return;
+        }
+        Arrays.sort(mCandidates, 0, mCandidateCount);
+        int start;
+        if (validPages > 0) {
+            mCount = validPages;
+            start = mStarts[validPages - 1];
+        } else {
+            mCount = 0;
+            start = 0;
+            add(start);
+        }
+        int candidate = 0;
+        while (candidate < mCandidateCount && mCandidates[candidate] <= start) {
+            candidate++;
+        }
+        while (start + pageHeight < contentHeight) {
+            final int ideal = start + pageHeight;
+            int next = ideal;
+            // Snap back to the last boundary inside the page, unless that leaves the page mostly empty
+            while (candidate < mCandidateCount && mCandidates[candidate] <= ideal) {
+                final int boundary = mCandidates[candidate++];
+                if (boundary > start + pageHeight / 2) {
+                    next = boundary;
+                }
+            }
+            start = next;
+            add(start);
+        }
+    }
+
+    /**
+     * A page start only depends on the candidates of the page before it, so
+     * when the content changes at or below offset the pages up to the first
+     * one reaching past offset keep their starts.
+     *
+     * @param offset the top of the changed content
+     * @return how many leading pages stay valid, 0 if none
+     */
+    public int getValidPageCount(int offset) {
+        if (mCount == 0) {
+            return 0;
+        }
+        // Count the pages that end above offset, the page after each of them is valid too
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mStarts[mid] + mPageHeight < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.min(mCount, low + 1);
+    }
+
+    private void add(int start) {
+        if (mCount == mStarts.length) {
+            mStarts = grow(mStarts);
+        }
+        mStarts[mCount++] = start;
+    }
+
+    private static int[] grow(int[] array) {
+        final int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Replaces the breaks, e.g. with ones read back by {@link PageBreakCodec}.
+     *
+     * @param starts ascending page starts, the first one is 0
+     * @param count how many of starts are used
+     */
+    public void set(int contentHeight, int pageHeight, int[] starts, int count) {
+        if (mStarts.length < count) {
+            mStarts = new int[count];
+        }
+        System.arraycopy(starts, 0, mStarts, 0, count);
+        mCount = count;
+        mPageHeight = pageHeight;
+        mContentHeight = contentHeight;
+    }
+
+    public void copyFrom(PageBreaks other) {
+        set(other.mContentHeight, other.mPageHeight, other.mStarts, other.mCount);
+    }
+
+    /**
+     * Forgets the breaks and the page height.
+     */
+    public void clear() {
+        mCount = 0;
+        mPageHeight = 0;
+        mContentHeight = 0;
+    }
+
+    /**
+     * @return true if other pages the same content height the same way
+     */
+    public boolean sameBreaks(PageBreaks other) {
+        if (mCount != other.mCount || mPageHeight != other.mPageHeight
+                || mContentHeight != other.mContentHeight) {
+            return false;
+        }
+        for (int i = 0; i < mCount; i++) {
+            if (mStarts[i] != other.mStarts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    public int getPageCount() {
+        return mCount;
+    }
+
+    public int getPageHeight() {
+        return mPageHeight;
+    }
+
+    /**
+     * @return the content height of the last {@link #build(int, int)}
+     */
+    public int getContentHeight() {
+        return mContentHeight;
+    }
+
+    /**
+     * @param page 1-based page
+     * @return the offset the page starts at
+     */
+    public int getPageStart(int page) {
+        return mStarts[page - 1];
+    }
+
+    /**
+     * @return the content height needed to show the last page as a full page
+     */
+    public int getPagedHeight() {
+        return mCount == 0 ? 0 : mStarts[mCount - 1] + mPageHeight;
+    }
+
+    /**
+     * @param offset a scroll offset
+     * @return the 1-based page whose start is the last one at or before offset
+     */
+    public int findPage(int offset) {
+        int low = 0;
+        int high = mCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (mStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+}
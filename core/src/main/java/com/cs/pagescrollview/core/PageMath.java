@@ -0,0 +1,33 @@
+package com.cs.pagescrollview.core;
+
+/**
+ * Page arithmetic shared by the Android view and the benchmarks.
+ */
+public final class PageMath {
+
+    private PageMath() {
+    }
+
+    /**
+     * @return how many pages of pageHeight are needed to hold height, the last one may be partial,
+     *         0 if pageHeight is not positive, e.g. before the first layout
+     */
+    public static int getPage(int height, int pageHeight) {
+        if (pageHeight <= 0) {
+            return 0;
+        }
+        return height % pageHeight > 0 ? height / pageHeight + 1 : height / pageHeight;
+    }
+
+    /**
+     * @param breaks the page breaks of the content, may be empty
+     * @param page 1-based target page
+     * @param pageHeight the height of a page, used when breaks is empty
+     * @param maxScrollY the largest scroll offset of the content
+     * @return the scroll offset moveToPage should land on
+     */
+    public static int getMoveToPageTarget(PageBreaks breaks, int page, int pageHeight, int maxScrollY) {
+        final int start = breaks.isEmpty() ? (page - 1) * pageHeight : breaks.getPageStart(page);
+        return Math.min(start, maxScrollY);
+    }
+}
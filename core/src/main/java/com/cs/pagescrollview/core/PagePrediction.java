@@ -0,0 +1,44 @@
+package com.cs.pagescrollview.core;
+
+/**
+ * Pages likely to be shown next, ordered by how soon. The pages ahead in the
+ * direction of travel come first, nearest first, followed by the page just
+ * behind the current one for a reader going back.
+ */
+public final class PagePrediction {
+    private PagePrediction() {
+    }
+
+    /**
+     * @param curPage the 1-based current page
+     * @param totalPage the number of pages
+     * @param direction positive when going forward, negative when going back
+     * @param window how many pages ahead to predict
+     * @return the predicted pages, the index of a page is its priority, 0 first
+     */
+    public static int[] predict(int curPage, int totalPage, int direction, int window) {
+        if (totalPage <= 1 || curPage < 1 || window <= 0) {
+            return new int[0];
+        }
+        final int step = direction < 0 ? -1 : 1;
+        final int[] pages = new int[window + 1];
+        int count = 0;
+        for (int i = 1; i <= window; i++) {
+            final int page = curPage + i * step;
+            if (page < 1 || page > totalPage) {
+                break;
+            }
+            pages[count++] = page;
+        }
+        final int behind = curPage - step;
+        if (behind >= 1 && behind <= totalPage) {
+            pages[count++] = behind;
+        }
+        if (count == pages.length) {
+            return pages;
+        }
+        final int[] result = new int[count];
+        System.arraycopy(pages, 0, result, 0, count);
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.cs.pagescrollview.core;
+
+/**
+ * Page turns requested since the last frame, merged into a single relative
+ * move. A burst of requests, e.g. a held page-down key or nextPage() called
+ * in a loop, ends in one jump to the final page.
+ */
+public final class PageTurnQueue {
+    /**
+     * Key repeats before the first acceleration step, and between the following ones
+     */
+    private static final int REPEAT_STEP = 8;
+    private static final int MAX_REPEAT_PAGES = 5;
+
+    private int mPages;
+    private long mInputNanos;
+
+    /**
+     * @param repeatCount the repeat count of a key event
+     * @return how many pages the event turns, more the longer the key is held
+     */
+    public static int getRepeatPages(int repeatCount) {
+        return Math.min(MAX_REPEAT_PAGES, 1 + Math.max(0, repeatCount) / REPEAT_STEP);
+    }
+
+    public boolean isEmpty() {
+        return mPages == 0;
+    }
+
+    /**
+     * Queues a turn unless it would not move past the first or the last page.
+     *
+     * @param pages positive to turn forward
+     * @param inputNanos when the input of the turn happened, the earliest one of a burst is kept
+     * @return true if the turn was queued
+     */
+    public boolean add(int pages, long inputNanos, int curPage, int totalPage) {
+        final int queued = getTarget(curPage, totalPage);
+        final int target = clamp(queued + pages, totalPage);
+        if (pages == 0 || target == queued) {
+            return false;
+        }
+        mPages = target - curPage;
+        if (mPages == 0) {
+            // Back where it started, nothing to turn
+            mInputNanos = 0;
+        } else if (mInputNanos == 0 || inputNanos < mInputNanos) {
+            mInputNanos = inputNanos;
+        }
+        return true;
+    }
+
+    /**
+     * @return the 1-based page the queued turns lead to
+     */
+    public int getTarget(int curPage, int totalPage) {
+        return clamp(curPage + mPages, totalPage);
+    }
+
+    public long getInputNanos() {
+        return mInputNanos;
+    }
+
+    public void clear() {
+        mPages = 0;
+        mInputNanos = 0;
+    }
+
+    private static int clamp(int page, int totalPage) {
+        return Math.max(1, Math.min(totalPage, page));
+    }
+}
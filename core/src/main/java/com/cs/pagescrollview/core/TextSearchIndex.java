@@ -0,0 +1,197 @@
+package com.cs.pagescrollview.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Inverted index of one piece of text. Words are runs of letters and digits,
+ * every CJK character is a word of its own. A query matches case-insensitively
+ * wherever it starts at the start of a word, its last word may be incomplete,
+ * so typing "pag" already finds "paging".
+ */
+public final class TextSearchIndex {
+    private final String mFolded;
+    /**
+     * Distinct words, sorted so prefixes are a range
+     */
+    private final String[] mWords;
+    private final int[][] mPostings;
+
+    public TextSearchIndex(String text) {
+        mFolded = fold(text);
+        final HashMap<String, IntList> postings = new HashMap<String, IntList>();
+        final int length = mFolded.length();
+        int i = 0;
+        while (i < length) {
+            final int end = wordEnd(mFolded, i);
+            if (end == i) {
+                i++;
+                continue;
+            }
+            final String word = mFolded.substring(i, end);
+            IntList list = postings.get(word);
+            if (list == null) {
+                list = new IntList();
+                postings.put(word, list);
+            }
+            list.add(i);
+            i = end;
+        }
+        mWords = postings.keySet().toArray(new String[postings.size()]);
+        Arrays.sort(mWords);
+        mPostings = new int[mWords.length][];
+        for (int w = 0; w < mWords.length; w++) {
+            mPostings[w] = postings.get(mWords[w]).toArray();
+        }
+    }
+
+    public int length() {
+        return mFolded.length();
+    }
+
+    /**
+     * @return the ascending start offsets of the matches of query
+     */
+    public int[] find(String query) {
+        final String folded = fold(query);
+        // Words of the query, the matched text starts at the first one
+        final ArrayList<int[]> words = new ArrayList<int[]>();
+        int i = 0;
+        while (i < folded.length()) {
+            final int end = wordEnd(folded, i);
+            if (end == i) {
+                i++;
+            } else {
+                words.add(new int[] {i, end});
+                i = end;
+            }
+        }
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        final int queryStart = words.get(0)[0];
+        final String needle = folded.substring(queryStart).trim();
+        final boolean lastComplete = words.get(words.size() - 1)[1] < folded.length();
+        // Look up the rarest complete word, the last one may still be typed
+        int[] candidates = null;
+        int candidateOffset = 0;
+        final int complete = lastComplete ? words.size() : words.size() - 1;
+        for (int w = 0; w < complete; w++) {
+            final int[] word = words.get(w);
+            final int[] postings = postingsOf(folded.substring(word[0], word[1]));
+            if (candidates == null || postings.length < candidates.length) {
+                candidates = postings;
+                candidateOffset = word[0] - queryStart;
+            }
+        }
+        if (candidates == null) {
+            final int[] word = words.get(0);
+            candidates = prefixPostingsOf(folded.substring(word[0], word[1]));
+        }
+        final IntList hits = new IntList();
+        for (int c = 0; c < candidates.length; c++) {
+            final int start = candidates[c] - candidateOffset;
+            if (start >= 0 && isWordStart(start) && mFolded.startsWith(needle, start)) {
+                hits.add(start);
+            }
+        }
+        return hits.toArray();
+    }
+
+    private int[] postingsOf(String word) {
+        final int index = Arrays.binarySearch(mWords, word);
+        return index >= 0 ? mPostings[index] : new int[0];
+    }
+
+    private int[] prefixPostingsOf(String prefix) {
+        int from = Arrays.binarySearch(mWords, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        final IntList merged = new IntList();
+        for (int w = from; w < mWords.length && mWords[w].startsWith(prefix); w++) {
+            merged.addAll(mPostings[w]);
+        }
+        final int[] result = merged.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private boolean isWordStart(int offset) {
+        final char previous = offset > 0 ? mFolded.charAt(offset - 1) : ' ';
+        return isIdeograph(mFolded.charAt(offset)) || isIdeograph(previous) || !isWordChar(previous);
+    }
+
+    /**
+     * @return the length of the text a match of query covers, 0 if it has no words
+     */
+    public static int matchLength(String query) {
+        final String folded = fold(query);
+        for (int i = 0; i < folded.length(); i++) {
+            if (wordEnd(folded, i) > i) {
+                return folded.substring(i).trim().length();
+            }
+        }
+        return 0;
+    }
+
+    private static int wordEnd(String text, int start) {
+        final char first = text.charAt(start);
+        if (isIdeograph(first)) {
+            return start + 1;
+        }
+        int end = start;
+        while (end < text.length() && isWordChar(text.charAt(end)) && !isIdeograph(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isIdeograph(char c) {
+        return (c >= 0x3040 && c <= 0x30ff) || (c >= 0x3400 && c <= 0x4dbf)
+                || (c >= 0x4e00 && c <= 0x9fff) || (c >= 0xac00 && c <= 0xd7af)
+                || (c >= 0xf900 && c <= 0xfaff);
+    }
+
+    /**
+     * Lower case char by char, so offsets in the folded text are offsets in the original.
+     */
+    private static String fold(String text) {
+        final char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private static final class IntList {
+        private int[] mValues = new int[4];
+        private int mSize;
+
+        void add(int value) {
+            if (mSize == mValues.length) {
+                final int[] grown = new int[mSize * 2];
+                System.arraycopy(mValues, 0, grown, 0, mSize);
+                mValues = grown;
+            }
+            mValues[mSize++] = value;
+        }
+
+        void addAll(int[] values) {
+            for (int i = 0; i < values.length; i++) {
+                add(values[i]);
+            }
+        }
+
+        int[] toArray() {
+            final int[] array = new int[mSize];
+            System.arraycopy(mValues, 0, array, 0, mSize);
+            return array;
+        }
+    }
+}
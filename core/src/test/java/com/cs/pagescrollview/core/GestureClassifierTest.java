@@ -0,0 +1,63 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GestureClassifierTest {
+    private GestureClassifier mClassifier;
+
+    @Before
+    public void setUp() {
+        mClassifier = new GestureClassifier(20, 1000, 8000, 3);
+    }
+
+    @Test
+    public void withinSlopIsUndecided() {
+        assertEquals(GestureClassifier.UNDECIDED, mClassifier.classify(0, 10, 0, 0));
+    }
+
+    @Test
+    public void dragUpGoesForward() {
+        assertEquals(1, mClassifier.classify(0, -30, 0, 0));
+        assertEquals(-1, mClassifier.classify(0, 30, 0, 0));
+    }
+
+    @Test
+    public void horizontalDragNeedsHorizontalPaging() {
+        assertEquals(GestureClassifier.UNDECIDED, mClassifier.classify(-30, 0, 0, 0));
+        mClassifier.setHorizontalPagingEnabled(true);
+        assertEquals(1, mClassifier.classify(-30, 0, 0, 0));
+        assertEquals(-1, mClassifier.classify(30, 0, 0, 0));
+    }
+
+    @Test
+    public void flatDiagonalWithoutHorizontalPagingTurnsNoPage() {
+        assertEquals(0, mClassifier.classify(-40, 25, 0, 0));
+    }
+
+    @Test
+    public void diagonalDragWithHorizontalPagingOnly() {
+        mClassifier.setVerticalPagingEnabled(false);
+        mClassifier.setHorizontalPagingEnabled(true);
+        assertEquals(1, mClassifier.classify(-40, 25, 0, 0));
+        assertEquals(-1, mClassifier.classify(40, -25, 0, 0));
+    }
+
+    @Test
+    public void flingCommitsBeforeTheSlop() {
+        assertEquals(1, mClassifier.classify(0, -10, 0, -2000));
+    }
+
+    @Test
+    public void fastFlingTurnsUpToTheMaximum() {
+        assertEquals(3, mClassifier.classify(0, -10, 0, -8000));
+        assertEquals(-3, mClassifier.classify(0, 10, 0, 20000));
+    }
+
+    @Test
+    public void flingAgainstTheDragIsIgnored() {
+        assertEquals(GestureClassifier.UNDECIDED, mClassifier.classify(0, -10, 0, 2000));
+    }
+}
@@ -0,0 +1,59 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final Histogram histogram = new Histogram();
+        for (int i = 0; i < 8; i++) {
+            histogram.record(i);
+        }
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(7, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void percentilesAreWithinABucket() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        final long p50 = histogram.getPercentile(50);
+        assertTrue("p50 " + p50, p50 >= 50000 && p50 <= 50000 * 1.125);
+        final long p99 = histogram.getPercentile(99);
+        assertTrue("p99 " + p99, p99 >= 99000 && p99 <= 100000);
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        final Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void reset() {
+        final Histogram histogram = new Histogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
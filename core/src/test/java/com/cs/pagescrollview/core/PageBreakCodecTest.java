@@ -0,0 +1,73 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class PageBreakCodecTest {
+    private static final long FINGERPRINT = PageBreakCodec.fingerprint("content");
+
+    private static byte[] write(PageBreaks breaks) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PageBreakCodec.write(new DataOutputStream(bytes), FINGERPRINT, 720, breaks);
+        return bytes.toByteArray();
+    }
+
+    private static boolean read(byte[] bytes, long fingerprint, int width, int pageHeight, PageBreaks breaks)
+            throws IOException {
+        return PageBreakCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), fingerprint, width,
+                pageHeight, breaks);
+    }
+
+    private static PageBreaks breaks() {
+        final PageBreaks breaks = new PageBreaks();
+        breaks.addCandidate(900);
+        breaks.addCandidate(1850);
+        breaks.build(100000, 1000);
+        return breaks;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final PageBreaks breaks = breaks();
+        final PageBreaks read = new PageBreaks();
+        assertTrue(read(write(breaks), FINGERPRINT, 720, 1000, read));
+        assertTrue(read.sameBreaks(breaks));
+    }
+
+    @Test
+    public void emptyBreaksRoundTrip() throws IOException {
+        final PageBreaks breaks = new PageBreaks();
+        breaks.build(0, 1000);
+        final PageBreaks read = breaks();
+        assertTrue(read(write(breaks), FINGERPRINT, 720, 1000, read));
+        assertTrue(read.isEmpty());
+    }
+
+    @Test
+    public void otherContentOrViewportIsRejected() throws IOException {
+        final byte[] bytes = write(breaks());
+        final PageBreaks read = new PageBreaks();
+        assertFalse(read(bytes, FINGERPRINT + 1, 720, 1000, read));
+        assertFalse(read(bytes, FINGERPRINT, 1080, 1000, read));
+        assertFalse(read(bytes, FINGERPRINT, 720, 1200, read));
+        assertTrue(read.isEmpty());
+    }
+
+    @Test
+    public void fingerprintDependsOnEveryChar() {
+        assertEquals(PageBreakCodec.fingerprint("abc"), PageBreakCodec.fingerprint(new StringBuilder("abc")));
+        assertNotEquals(PageBreakCodec.fingerprint("abc"), PageBreakCodec.fingerprint("abd"));
+        // Both bytes of a char are hashed
+        assertNotEquals(PageBreakCodec.fingerprint("\u4e00"), PageBreakCodec.fingerprint("\u0000"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PageBreaksTest {
+
+    private static PageBreaks build(int contentHeight, int pageHeight, int... candidates) {
+        final PageBreaks breaks = new PageBreaks();
+        for (int candidate : candidates) {
+            breaks.addCandidate(candidate);
+        }
+        breaks.build(contentHeight, pageHeight);
+        return breaks;
+    }
+
+    private static void assertStarts(PageBreaks breaks, int... starts) {
+        assertEquals(starts.length, breaks.getPageCount());
+        for (int i = 0; i < starts.length; i++) {
+            assertEquals("start of page " + (i + 1), starts[i], breaks.getPageStart(i + 1));
+        }
+    }
+
+    @Test
+    public void emptyContentHasNoBreaks() {
+        final PageBreaks breaks = build(0, 1000);
+        assertTrue(breaks.isEmpty());
+        assertEquals(0, breaks.getPagedHeight());
+        assertEquals(0, breaks.getValidPageCount(500));
+    }
+
+    @Test
+    public void zeroPageHeightHasNoBreaks() {
+        assertTrue(build(2500, 0).isEmpty());
+    }
+
+    @Test
+    public void partialLastPage() {
+        final PageBreaks breaks = build(2500, 1000);
+        assertStarts(breaks, 0, 1000, 2000);
+        assertEquals(3000, breaks.getPagedHeight());
+    }
+
+    @Test
+    public void exactLastPage() {
+        assertStarts(build(2000, 1000), 0, 1000);
+        assertStarts(build(1000, 1000), 0);
+        assertStarts(build(1, 1000), 0);
+    }
+
+    @Test
+    public void snapsBackToBoundaryInTheLowerHalf() {
+        assertStarts(build(2500, 1000, 900), 0, 900, 1900);
+    }
+
+    @Test
+    public void ignoresBoundaryThatLeavesThePageMostlyEmpty() {
+        assertStarts(build(2500, 1000, 300), 0, 1000, 2000);
+    }
+
+    @Test
+    public void candidatesNeedNotBeSorted() {
+        assertStarts(build(3000, 1000, 1850, 900), 0, 900, 1850, 2850);
+    }
+
+    @Test
+    public void findPage() {
+        final PageBreaks breaks = build(2500, 1000, 900);
+        assertEquals(1, breaks.findPage(0));
+        assertEquals(1, breaks.findPage(899));
+        assertEquals(2, breaks.findPage(900));
+        assertEquals(3, breaks.findPage(1900));
+        assertEquals(3, breaks.findPage(100000));
+    }
+
+    @Test
+    public void validPagesEndAboveTheChange() {
+        final PageBreaks breaks = build(3000, 1000, 900, 1850);
+        assertStarts(breaks, 0, 900, 1850, 2850);
+        assertEquals(1, breaks.getValidPageCount(0));
+        assertEquals(3, breaks.getValidPageCount(2000));
+        assertEquals(4, breaks.getValidPageCount(100000));
+    }
+
+    @Test
+    public void incrementalBuildMatchesFullBuild() {
+        final PageBreaks breaks = build(3000, 1000, 900, 1850);
+        final int validPages = breaks.getValidPageCount(2000);
+        breaks.clearCandidates();
+        breaks.addCandidate(2500);
+        breaks.build(4000, 1000, validPages);
+        assertStarts(breaks, 0, 900, 1850, 2500, 3500);
+        assertTrue(breaks.sameBreaks(build(4000, 1000, 900, 1850, 2500)));
+    }
+
+    @Test
+    public void pageHeightChangeRebuildsEverything() {
+        final PageBreaks breaks = build(3000, 1000);
+        breaks.build(3000, 800, 3);
+        assertStarts(breaks, 0, 800, 1600, 2400);
+    }
+
+    @Test
+    public void copyAndClear() {
+        final PageBreaks breaks = build(2500, 1000, 900);
+        final PageBreaks copy = new PageBreaks();
+        copy.copyFrom(breaks);
+        assertTrue(copy.sameBreaks(breaks));
+        copy.clear();
+        assertTrue(copy.isEmpty());
+        assertFalse(copy.sameBreaks(breaks));
+    }
+}
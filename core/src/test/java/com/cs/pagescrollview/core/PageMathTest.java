@@ -0,0 +1,50 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PageMathTest {
+
+    @Test
+    public void partialLastPageCountsAsAPage() {
+        assertEquals(3, PageMath.getPage(2500, 1000));
+        assertEquals(1, PageMath.getPage(1, 1000));
+    }
+
+    @Test
+    public void exactMultipleHasNoExtraPage() {
+        assertEquals(2, PageMath.getPage(2000, 1000));
+        assertEquals(1, PageMath.getPage(1000, 1000));
+    }
+
+    @Test
+    public void zeroHeightHasNoPages() {
+        assertEquals(0, PageMath.getPage(0, 1000));
+    }
+
+    @Test
+    public void pageHeightNotPositiveHasNoPages() {
+        // Before the first layout the page height is 0
+        assertEquals(0, PageMath.getPage(2500, 0));
+        assertEquals(0, PageMath.getPage(2500, -1));
+        assertEquals(0, PageMath.getPage(0, 0));
+    }
+
+    @Test
+    public void moveTargetWithoutBreaksIsAMultipleOfThePageHeight() {
+        final PageBreaks breaks = new PageBreaks();
+        assertEquals(0, PageMath.getMoveToPageTarget(breaks, 1, 1000, 1800));
+        assertEquals(1000, PageMath.getMoveToPageTarget(breaks, 2, 1000, 1800));
+    }
+
+    @Test
+    public void moveTargetOfLastPageIsClampedToTheEnd() {
+        final PageBreaks breaks = new PageBreaks();
+        assertEquals(1800, PageMath.getMoveToPageTarget(breaks, 3, 1000, 1800));
+        breaks.addCandidate(900);
+        breaks.build(2800, 1000);
+        assertEquals(900, PageMath.getMoveToPageTarget(breaks, 2, 1000, 1800));
+        assertEquals(1800, PageMath.getMoveToPageTarget(breaks, 3, 1000, 1800));
+    }
+}
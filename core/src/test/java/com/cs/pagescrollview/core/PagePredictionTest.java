@@ -0,0 +1,41 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+public class PagePredictionTest {
+
+    @Test
+    public void forwardPredictsAheadThenBehind() {
+        assertArrayEquals(new int[] {6, 7, 4}, PagePrediction.predict(5, 10, 1, 2));
+    }
+
+    @Test
+    public void backwardPredictsAheadThenBehind() {
+        assertArrayEquals(new int[] {4, 3, 6}, PagePrediction.predict(5, 10, -1, 2));
+    }
+
+    @Test
+    public void stopsAtTheLastPage() {
+        assertArrayEquals(new int[] {10, 8}, PagePrediction.predict(9, 10, 1, 3));
+        assertArrayEquals(new int[] {9}, PagePrediction.predict(10, 10, 1, 2));
+    }
+
+    @Test
+    public void stopsAtTheFirstPage() {
+        assertArrayEquals(new int[] {1, 3}, PagePrediction.predict(2, 10, -1, 3));
+        assertArrayEquals(new int[] {2}, PagePrediction.predict(1, 10, -1, 2));
+    }
+
+    @Test
+    public void emptyWindowPredictsNothing() {
+        assertArrayEquals(new int[0], PagePrediction.predict(5, 10, 1, 0));
+    }
+
+    @Test
+    public void singlePagePredictsNothing() {
+        assertArrayEquals(new int[0], PagePrediction.predict(1, 1, 1, 2));
+        assertArrayEquals(new int[0], PagePrediction.predict(1, 0, 1, 2));
+    }
+}
@@ -0,0 +1,56 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PageTurnQueueTest {
+
+    @Test
+    public void mergesTurnsAndKeepsTheEarliestInput() {
+        final PageTurnQueue queue = new PageTurnQueue();
+        assertTrue(queue.add(1, 100, 5, 10));
+        assertTrue(queue.add(1, 50, 5, 10));
+        assertEquals(7, queue.getTarget(5, 10));
+        assertEquals(50, queue.getInputNanos());
+    }
+
+    @Test
+    public void turnsCancellingOutLeaveItEmpty() {
+        final PageTurnQueue queue = new PageTurnQueue();
+        queue.add(2, 100, 5, 10);
+        assertTrue(queue.add(-2, 200, 5, 10));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getInputNanos());
+    }
+
+    @Test
+    public void doesNotMovePastTheLastOrFirstPage() {
+        final PageTurnQueue queue = new PageTurnQueue();
+        assertFalse(queue.add(1, 100, 10, 10));
+        assertFalse(queue.add(-1, 100, 1, 10));
+        assertTrue(queue.add(5, 100, 8, 10));
+        assertEquals(10, queue.getTarget(8, 10));
+        assertFalse(queue.add(1, 100, 8, 10));
+    }
+
+    @Test
+    public void clear() {
+        final PageTurnQueue queue = new PageTurnQueue();
+        queue.add(1, 100, 1, 10);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(1, queue.getTarget(1, 10));
+    }
+
+    @Test
+    public void repeatPagesAccelerate() {
+        assertEquals(1, PageTurnQueue.getRepeatPages(-1));
+        assertEquals(1, PageTurnQueue.getRepeatPages(0));
+        assertEquals(1, PageTurnQueue.getRepeatPages(7));
+        assertEquals(2, PageTurnQueue.getRepeatPages(8));
+        assertEquals(5, PageTurnQueue.getRepeatPages(1000));
+    }
+}
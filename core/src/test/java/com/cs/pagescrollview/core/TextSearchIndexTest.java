@@ -0,0 +1,56 @@
+package com.cs.pagescrollview.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TextSearchIndexTest {
+
+    @Test
+    public void prefixFindsTheWordsStartingWithIt() {
+        final TextSearchIndex index = new TextSearchIndex("The paging view pages");
+        assertArrayEquals(new int[] {4, 16}, index.find("pag"));
+    }
+
+    @Test
+    public void prefixDoesNotMatchInsideAWord() {
+        final TextSearchIndex index = new TextSearchIndex("repaging");
+        assertArrayEquals(new int[0], index.find("pag"));
+    }
+
+    @Test
+    public void lastWordOfSeveralMayBeIncomplete() {
+        final TextSearchIndex index = new TextSearchIndex("page turns and page breaks");
+        assertArrayEquals(new int[] {15}, index.find("page br"));
+        assertArrayEquals(new int[0], index.find("page bx"));
+    }
+
+    @Test
+    public void everyIdeographIsAWord() {
+        final TextSearchIndex index = new TextSearchIndex("分页滚动视图, 滚动翻页");
+        assertArrayEquals(new int[] {2, 8}, index.find("滚动"));
+        assertArrayEquals(new int[] {1, 11}, index.find("页"));
+    }
+
+    @Test
+    public void matchesIgnoreCase() {
+        final TextSearchIndex index = new TextSearchIndex("Paging PAGES pager");
+        assertArrayEquals(new int[] {0, 7, 13}, index.find("PAG"));
+        assertArrayEquals(new int[] {7}, index.find("Pages "));
+    }
+
+    @Test
+    public void trailingSpaceMatchesTheWholeWordOnly() {
+        final TextSearchIndex index = new TextSearchIndex("page pages paged page");
+        assertArrayEquals(new int[] {0, 17}, index.find("page "));
+        assertArrayEquals(new int[] {0, 5, 11, 17}, index.find("page"));
+    }
+
+    @Test
+    public void matchLengthIgnoresSurroundingSpaces() {
+        assertEquals(7, TextSearchIndex.matchLength("  page br"));
+        assertEquals(4, TextSearchIndex.matchLength("page "));
+        assertEquals(0, TextSearchIndex.matchLength(" , "));
+    }
+}
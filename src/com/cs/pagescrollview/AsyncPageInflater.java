@@ -0,0 +1,88 @@
+package com.cs.pagescrollview;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.view.LayoutInflaterCompat;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Inflates page content on a background thread and hands the result back on
+ * the UI thread, like the support library's AsyncLayoutInflater. The inflater
+ * uses an {@link AutoLayoutInflaterFactory}, so scroll containers in the
+ * layout are already paged. Layouts that cannot be inflated off the UI
+ * thread, e.g. because a view creates a Handler in its constructor, fall back
+ * to inflating on the UI thread.
+ */
+public class AsyncPageInflater {
+    private static final String TAG = "AsyncPageInflater";
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(
+            new PageThreads("PageInflate"));
+
+    private final LayoutInflater mInflater;
+    private final AutoLayoutInflaterFactory mFactory;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public interface OnInflateFinishedListener {
+        /**
+         * Called on the UI thread, the view is not attached to parent yet.
+         */
+        void onInflateFinished(View view, int resid, ViewGroup parent);
+    }
+
+    public AsyncPageInflater(Context context) {
+        this(context, new AutoLayoutInflaterFactory());
+    }
+
+    public AsyncPageInflater(Context context, AutoLayoutInflaterFactory factory) {
+        // A private inflater, the factory of the activity's one can only be set once
+        mInflater = LayoutInflater.from(context).cloneInContext(context);
+        mFactory = factory;
+        LayoutInflaterCompat.setFactory(mInflater, factory);
+    }
+
+    public AutoLayoutInflaterFactory getFactory() {
+        return mFactory;
+    }
+
+    /**
+     * Must be called on the UI thread.
+     *
+     * @param resid the layout to inflate
+     * @param parent used to generate the layout params only, may be null
+     * @param callback receives the view on the UI thread
+     */
+    public void inflate(final int resid, final ViewGroup parent, final OnInflateFinishedListener callback) {
+        if (callback == null) {
+            throw new NullPointerException("callback argument may not be null!");
+        }
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                View view = null;
+                try {
+                    view = mFactory.inflate(mInflater, resid, parent, false);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to inflate resource in the background! Retrying on the UI thread", e);
+                }
+                final View result = view;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        View view = result;
+                        if (view == null) {
+                            view = mFactory.inflate(mInflater, resid, parent, false);
+                        }
+                        callback.onInflateFinished(view, resid, parent);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -1,23 +1,149 @@
 package com.cs.pagescrollview;
 
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+
 import android.content.Context;
+import android.os.SystemClock;
 import android.support.v4.view.LayoutInflaterFactory;
 import android.util.AttributeSet;
+import android.view.InflateException;
+import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 
+/**
+ * Replaces the containers of inflated layouts with their paged variants, by
+ * default ScrollView becomes {@link PageScrollView}. More replacements can be
+ * registered, their constructors are looked up once and cached, and a
+ * {@link Configurator} is applied before the view is attached so no extra
+ * layout pass is needed. Safe to use from {@link AsyncPageInflater}'s thread.
+ */
 public class AutoLayoutInflaterFactory implements LayoutInflaterFactory{
+    private static final Class<?>[] CONSTRUCTOR_SIGNATURE = new Class[] {
+        Context.class, AttributeSet.class
+    };
+    private static final ConcurrentHashMap<Class<?>, Constructor<? extends View>> sConstructors =
+            new ConcurrentHashMap<Class<?>, Constructor<? extends View>>();
+
+    private final ConcurrentHashMap<String, Replacement> mReplacements =
+            new ConcurrentHashMap<String, Replacement>();
+    private volatile OnLayoutInflatedListener mOnLayoutInflatedListener;
+
+    /**
+     * Configures a replacement view right after it is created.
+     */
+    public interface Configurator {
+        void configure(View view);
+    }
+
+    /**
+     * Receives the time spent in {@link AutoLayoutInflaterFactory#inflate}.
+     */
+    public interface OnLayoutInflatedListener {
+        /**
+         * @param resource the layout resource
+         * @param elapsedMillis time spent inflating
+         * @param replaced how many views the factory replaced
+         */
+        void onLayoutInflated(int resource, long elapsedMillis, int replaced);
+    }
+
+    private static final class Replacement {
+        final Class<? extends View> viewClass;
+        final Configurator configurator;
+
+        Replacement(Class<? extends View> viewClass, Configurator configurator) {
+            this.viewClass = viewClass;
+            this.configurator = configurator;
+        }
+    }
+
+    /**
+     * Counts the replacements of the inflation running on the current thread
+     */
+    private final ThreadLocal<int[]> mReplacedCount = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    public AutoLayoutInflaterFactory() {
+        final Configurator fixLastPage = new Configurator() {
+            @Override
+            public void configure(View view) {
+                ((PageScrollView) view).setFixLastPageHeight(true);
+            }
+        };
+        register("ScrollView", PageScrollView.class, fixLastPage);
+        register("android.widget.ScrollView", PageScrollView.class, fixLastPage);
+    }
+
+    /**
+     * @param name the tag as written in the layout, e.g. "ScrollView"
+     * @param viewClass the view to create instead, needs a (Context, AttributeSet) constructor
+     */
+    public void register(String name, Class<? extends View> viewClass) {
+        register(name, viewClass, null);
+    }
+
+    public void register(String name, Class<? extends View> viewClass, Configurator configurator) {
+        mReplacements.put(name, new Replacement(viewClass, configurator));
+    }
+
+    public void unregister(String name) {
+        mReplacements.remove(name);
+    }
+
+    public void setOnLayoutInflatedListener(OnLayoutInflatedListener listener) {
+        mOnLayoutInflatedListener = listener;
+    }
 
     @Override
     public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
-        switch (name) {
-        case "ScrollView":
-            PageScrollView pageScrollView = new PageScrollView(context, attrs);
-            pageScrollView.setFixLastPageHeight(true);
-            return pageScrollView;
-            
-        default:
-            break;
+        final Replacement replacement = mReplacements.get(name);
+        if (replacement == null) {
+            return null;
+        }
+        final View view = newInstance(replacement.viewClass, context, attrs);
+        if (replacement.configurator != null) {
+            replacement.configurator.configure(view);
+        }
+        mReplacedCount.get()[0]++;
+        return view;
+    }
+
+    private static View newInstance(Class<? extends View> viewClass, Context context, AttributeSet attrs) {
+        try {
+            Constructor<? extends View> constructor = sConstructors.get(viewClass);
+            if (constructor == null) {
+                constructor = viewClass.getConstructor(CONSTRUCTOR_SIGNATURE);
+                constructor.setAccessible(true);
+                sConstructors.put(viewClass, constructor);
+            }
+            return constructor.newInstance(context, attrs);
+        } catch (Exception e) {
+            InflateException ie = new InflateException(attrs.getPositionDescription()
+                    + ": Error inflating class " + viewClass.getName());
+            ie.initCause(e);
+            throw ie;
+        }
+    }
+
+    /**
+     * Inflates a layout with an inflater using this factory and reports how
+     * long it took to the {@link OnLayoutInflatedListener}.
+     */
+    public View inflate(LayoutInflater inflater, int resource, ViewGroup root, boolean attachToRoot) {
+        final OnLayoutInflatedListener listener = mOnLayoutInflatedListener;
+        final int[] replaced = mReplacedCount.get();
+        final int replacedBefore = replaced[0];
+        final long start = SystemClock.uptimeMillis();
+        final View view = inflater.inflate(resource, root, attachToRoot);
+        if (listener != null) {
+            listener.onLayoutInflated(resource, SystemClock.uptimeMillis() - start, replaced[0] - replacedBefore);
         }
-        return null;
+        return view;
     }
 }
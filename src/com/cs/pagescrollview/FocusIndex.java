@@ -0,0 +1,182 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Interval index of the focusable descendants of a {@link PageScrollView},
+ * keyed by their top and bottom in scroll coordinates. Intervals are sorted by
+ * top and a max-bottom segment tree over them prunes every subtree that ends
+ * above the queried bounds, so a page turn only visits the focusables that can
+ * overlap the new page instead of the whole content tree.
+ */
+class FocusIndex {
+    private final ArrayList<View> mFocusables = new ArrayList<View>();
+    private View[] mViews = new View[0];
+    private int[] mTops = new int[0];
+    private int[] mBottoms = new int[0];
+    private long[] mOrder = new long[0];
+    private int[] mMaxBottom = new int[0];
+    private int mCount;
+    private int mLeafCount;
+    private boolean mValid;
+
+    private View mCandidate;
+    private int mCandidateTop;
+    private int mCandidateBottom;
+    private boolean mFoundFullyContained;
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * Collects the focusables of host and indexes their bounds.
+     */
+    void build(ViewGroup host, Rect tempRect) {
+        mFocusables.clear();
+        host.addFocusables(mFocusables, View.FOCUS_FORWARD);
+        final int size = mFocusables.size();
+        ensureCapacity(size);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final View view = mFocusables.get(i);
+            if (view == host) {
+                continue;
+            }
+            view.getDrawingRect(tempRect);
+            host.offsetDescendantRectToMyCoords(view, tempRect);
+            mViews[count] = view;
+            mTops[count] = tempRect.top;
+            mBottoms[count] = tempRect.bottom;
+            mOrder[count] = ((long) tempRect.top << 32) | count;
+            count++;
+        }
+        mFocusables.clear();
+        // Sort by top, the low word of each key remembers where the view was
+        Arrays.sort(mOrder, 0, count);
+        final View[] views = new View[count];
+        final int[] tops = new int[count];
+        final int[] bottoms = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int from = (int) mOrder[i];
+            views[i] = mViews[from];
+            tops[i] = mTops[from];
+            bottoms[i] = mBottoms[from];
+        }
+        System.arraycopy(views, 0, mViews, 0, count);
+        System.arraycopy(tops, 0, mTops, 0, count);
+        System.arraycopy(bottoms, 0, mBottoms, 0, count);
+        for (int i = count; i < mViews.length; i++) {
+            mViews[i] = null;
+        }
+        mCount = count;
+        buildTree();
+        mValid = true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (mViews.length < size) {
+            mViews = new View[size];
+            mTops = new int[size];
+            mBottoms = new int[size];
+            mOrder = new long[size];
+        }
+    }
+
+    private void buildTree() {
+        int leafCount = 1;
+        while (leafCount < mCount) {
+            leafCount <<= 1;
+        }
+        mLeafCount = leafCount;
+        if (mMaxBottom.length < leafCount * 2) {
+            mMaxBottom = new int[leafCount * 2];
+        }
+        for (int i = 0; i < leafCount; i++) {
+            mMaxBottom[leafCount + i] = i < mCount ? mBottoms[i] : Integer.MIN_VALUE;
+        }
+        for (int node = leafCount - 1; node > 0; node--) {
+            mMaxBottom[node] = Math.max(mMaxBottom[node * 2], mMaxBottom[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Same rules as ScrollView#findFocusableViewInBounds: a fully contained
+     * focusable beats a partially contained one, ties go to the one closer to
+     * the boundary we are moving towards.
+     */
+    View findInBounds(boolean topFocus, int top, int bottom) {
+        mCandidate = null;
+        mFoundFullyContained = false;
+        // Only intervals starting above bottom can overlap
+        int end = 0;
+        int high = mCount;
+        while (end < high) {
+            final int mid = (end + high) >>> 1;
+            if (mTops[mid] < bottom) {
+                end = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (end > 0) {
+            visit(1, 0, mLeafCount, end, topFocus, top, bottom);
+        }
+        final View candidate = mCandidate;
+        mCandidate = null;
+        return candidate;
+    }
+
+    private void visit(int node, int from, int to, int end, boolean topFocus, int top, int bottom) {
+        if (from >= end || mMaxBottom[node] <= top) {
+            return;
+        }
+        if (to - from == 1) {
+            offer(from, topFocus, top, bottom);
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        visit(node * 2, from, mid, end, topFocus, top, bottom);
+        visit(node * 2 + 1, mid, to, end, topFocus, top, bottom);
+    }
+
+    private void offer(int i, boolean topFocus, int top, int bottom) {
+        final View view = mViews[i];
+        // Focusability may have changed since the last layout
+        if (!view.isFocusable() || !view.isShown()) {
+            return;
+        }
+        final int viewTop = mTops[i];
+        final int viewBottom = mBottoms[i];
+        final boolean viewIsFullyContained = (top < viewTop) && (viewBottom < bottom);
+        if (mCandidate == null) {
+            setCandidate(view, viewTop, viewBottom, viewIsFullyContained);
+            return;
+        }
+        final boolean viewIsCloserToBoundary =
+                (topFocus && viewTop < mCandidateTop) || (!topFocus && viewBottom > mCandidateBottom);
+        if (mFoundFullyContained) {
+            if (viewIsFullyContained && viewIsCloserToBoundary) {
+                setCandidate(view, viewTop, viewBottom, true);
+            }
+        } else if (viewIsFullyContained || viewIsCloserToBoundary) {
+            setCandidate(view, viewTop, viewBottom, viewIsFullyContained);
+        }
+    }
+
+    private void setCandidate(View view, int viewTop, int viewBottom, boolean fullyContained) {
+        mCandidate = view;
+        mCandidateTop = viewTop;
+        mCandidateBottom = viewBottom;
+        mFoundFullyContained = fullyContained;
+    }
+}
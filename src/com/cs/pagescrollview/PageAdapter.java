@@ -0,0 +1,55 @@
+package com.cs.pagescrollview;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Supplies the pages of a {@link PageScrollView}. Only the current page and
+ * {@link PageScrollView#setOffscreenPageLimit(int)} pages on each side are
+ * created; pages leaving that window are recycled by view type and handed
+ * back through {@code convertView}.
+ * <p>
+ * Positions are 0-based, so position {@code n} is shown as page {@code n + 1}
+ * by {@link PageScrollView#getCurPage()}.
+ */
+public abstract class PageAdapter {
+    private final DataSetObservable mObservable = new DataSetObservable();
+
+    /**
+     * @return the number of pages
+     */
+    public abstract int getCount();
+
+    /**
+     * @param position 0-based page position
+     * @param convertView a recycled view of the same view type, or null
+     * @param parent the parent the view will be attached to
+     * @return the view showing the page
+     */
+    public abstract View getView(int position, View convertView, ViewGroup parent);
+
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+    public void registerDataSetObserver(DataSetObserver observer) {
+        mObservable.registerObserver(observer);
+    }
+
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        mObservable.unregisterObserver(observer);
+    }
+
+    /**
+     * Rebinds the pages that are currently created and updates the page count.
+     */
+    public void notifyDataSetChanged() {
+        mObservable.notifyChanged();
+    }
+}
@@ -0,0 +1,148 @@
+package com.cs.pagescrollview;
+
+import android.text.Layout;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.cs.pagescrollview.core.PageBreaks;
+
+/**
+ * Page breaks of the content of a {@link PageScrollView}. Collects the child
+ * and text line boundaries of the view tree as break candidates, the snapping
+ * and the lookups are done by {@link PageBreaks}.
+ */
+class PageBreakIndex {
+    private final PageBreaks mBreaks = new PageBreaks();
+
+    /**
+     * Rebuilds the index from the measured content.
+     *
+     * @param content the single child of the PageScrollView
+     * @param contentHeight the natural height of the content
+     * @param pageHeight the height of a page
+     * @param changedOffset the top of the content that changed since the last build,
+     *                      0 rebuilds everything
+     */
+    void build(View content, int contentHeight, int pageHeight, int changedOffset) {
+        final int validPages = changedOffset > 0 ? mBreaks.getValidPageCount(changedOffset) : 0;
+        final int from = validPages > 0 ? mBreaks.getPageStart(validPages) : 0;
+        mBreaks.clearCandidates();
+        if (content != null) {
+            collectCandidates(content, from);
+        }
+        mBreaks.build(content != null ? contentHeight : 0, pageHeight, validPages);
+    }
+
+    /**
+     * @return true if the candidates of content are only known after it is laid out
+     */
+    static boolean needsLayout(View content) {
+        return content instanceof ViewGroup && !(content instanceof VirtualPageContainer)
+                && !isVerticalLinearLayout(content);
+    }
+
+    private static boolean isVerticalLinearLayout(View content) {
+        return content instanceof LinearLayout
+                && ((LinearLayout) content).getOrientation() == LinearLayout.VERTICAL;
+    }
+
+    /**
+     * Adds the candidates below from, the ones above it are not needed by an incremental build.
+     */
+    private void collectCandidates(View content, int from) {
+        if (content instanceof TextView) {
+            final TextView textView = (TextView) content;
+            final Layout layout = textView.getLayout();
+            if (layout != null) {
+                final int offset = textView.getTotalPaddingTop();
+                final int first = Math.max(1, layout.getLineForVertical(from - offset));
+                for (int i = first; i < layout.getLineCount(); i++) {
+                    mBreaks.addCandidate(offset + layout.getLineTop(i));
+                }
+            }
+        } else if (content instanceof PagedTextView) {
+            final PagedTextView textView = (PagedTextView) content;
+            final int offset = textView.getPaddingTop();
+            for (int i = 0; i < textView.getSectionCount(); i++) {
+                final PagedTextView.Section section = textView.getSection(i);
+                final int sectionTop = offset + section.top;
+                if (sectionTop + section.layout.getHeight() < from) {
+                    continue;
+                }
+                final int first = Math.max(i == 0 ? 1 : 0, section.layout.getLineForVertical(from - sectionTop));
+                for (int line = first; line < section.layout.getLineCount(); line++) {
+                    mBreaks.addCandidate(sectionTop + section.layout.getLineTop(line));
+                }
+            }
+        } else if (isVerticalLinearLayout(content)) {
+            // Known from the measured heights, so the breaks can be built before the layout pass
+            final ViewGroup group = (ViewGroup) content;
+            int top = group.getPaddingTop();
+            for (int i = 0; i < group.getChildCount(); i++) {
+                final View child = group.getChildAt(i);
+                if (child.getVisibility() == View.GONE) {
+                    continue;
+                }
+                final ViewGroup.LayoutParams params = child.getLayoutParams();
+                if (params instanceof ViewGroup.MarginLayoutParams) {
+                    final ViewGroup.MarginLayoutParams lp = (ViewGroup.MarginLayoutParams) params;
+                    top += lp.topMargin;
+                    mBreaks.addCandidate(top);
+                    top += child.getMeasuredHeight() + lp.bottomMargin;
+                } else {
+                    mBreaks.addCandidate(top);
+                    top += child.getMeasuredHeight();
+                }
+            }
+        } else if (content instanceof ViewGroup && !(content instanceof VirtualPageContainer)) {
+            final ViewGroup group = (ViewGroup) content;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                final View child = group.getChildAt(i);
+                if (child.getVisibility() != View.GONE) {
+                    mBreaks.addCandidate(child.getTop());
+                }
+            }
+        }
+    }
+
+    PageBreaks getBreaks() {
+        return mBreaks;
+    }
+
+    boolean isEmpty() {
+        return mBreaks.isEmpty();
+    }
+
+    int getPageCount() {
+        return mBreaks.getPageCount();
+    }
+
+    int getPageHeight() {
+        return mBreaks.getPageHeight();
+    }
+
+    /**
+     * @param page 1-based page
+     * @return the scroll offset the page starts at
+     */
+    int getPageStart(int page) {
+        return mBreaks.getPageStart(page);
+    }
+
+    /**
+     * @return the content height needed to show the last page as a full page
+     */
+    int getPagedHeight() {
+        return mBreaks.getPagedHeight();
+    }
+
+    /**
+     * @param offset a scroll offset
+     * @return the 1-based page whose start is the last one at or before offset
+     */
+    int findPage(int offset) {
+        return mBreaks.findPage(offset);
+    }
+}
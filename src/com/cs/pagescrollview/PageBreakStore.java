@@ -0,0 +1,201 @@
+package com.cs.pagescrollview;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.cs.pagescrollview.core.PageBreakCodec;
+import com.cs.pagescrollview.core.PageBreaks;
+
+/**
+ * Directory of page break tables, one small file per content fingerprint and
+ * viewport size. Lets a {@link PageScrollView} page a long document at once
+ * when it is reopened instead of measuring all of it first. Files are read
+ * and written in the background.
+ */
+public class PageBreakStore {
+    private static final String TAG = "PageBreakStore";
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(
+            new PageThreads("PageBreakStore"));
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private final File mDir;
+
+    /**
+     * A stored table and the width it was paged at.
+     */
+    static final class Table {
+        final int width;
+        final PageBreaks breaks;
+
+        Table(int width, PageBreaks breaks) {
+            this.width = width;
+            this.breaks = breaks;
+        }
+    }
+
+    interface OnLoadListener {
+        /**
+         * Called on the UI thread.
+         *
+         * @param tables every table stored for the content, one per viewport size
+         */
+        void onPageBreaksLoaded(long fingerprint, ArrayList<Table> tables);
+    }
+
+    /**
+     * Stores the tables in the cache directory, the system may delete them when space runs low.
+     */
+    public PageBreakStore(Context context) {
+        this(new File(context.getCacheDir(), "page_breaks"));
+    }
+
+    public PageBreakStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @see PageBreakCodec#fingerprint(CharSequence)
+     */
+    public static long fingerprint(CharSequence text) {
+        return PageBreakCodec.fingerprint(text);
+    }
+
+    private File getFile(long fingerprint, int width, int pageHeight) {
+        return new File(mDir, Long.toHexString(fingerprint) + "_" + width + "x" + pageHeight);
+    }
+
+    /**
+     * Reads the tables of every viewport size the content was stored at in
+     * the background, after the writes already queued.
+     */
+    void loadAll(final long fingerprint, final OnLoadListener listener) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ArrayList<Table> tables = new ArrayList<Table>();
+                final String prefix = Long.toHexString(fingerprint) + "_";
+                final File[] files = mDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        final String name = file.getName();
+                        final int x = name.indexOf('x', prefix.length());
+                        if (!name.startsWith(prefix) || x < 0 || name.endsWith(".tmp")) {
+                            continue;
+                        }
+                        try {
+                            final int width = Integer.parseInt(name.substring(prefix.length(), x));
+                            final int pageHeight = Integer.parseInt(name.substring(x + 1));
+                            final PageBreaks breaks = new PageBreaks();
+                            if (load(fingerprint, width, pageHeight, breaks)) {
+                                tables.add(new Table(width, breaks));
+                            }
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+                sHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPageBreaksLoaded(fingerprint, tables);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return true if breaks was replaced with the stored table
+     */
+    private boolean load(long fingerprint, int width, int pageHeight, PageBreaks breaks) {
+        final File file = getFile(fingerprint, width, pageHeight);
+        if (!file.exists()) {
+            return false;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return PageBreakCodec.read(in, fingerprint, width, pageHeight, breaks);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + file, e);
+            file.delete();
+            return false;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes a copy of breaks in the background, readers never see a partial file.
+     */
+    void save(final long fingerprint, final int width, PageBreaks breaks) {
+        final PageBreaks copy = new PageBreaks();
+        copy.copyFrom(breaks);
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File file = getFile(fingerprint, width, copy.getPageHeight());
+                final File temp = new File(mDir, file.getName() + ".tmp");
+                DataOutputStream out = null;
+                try {
+                    if (!mDir.isDirectory() && !mDir.mkdirs()) {
+                        throw new IOException("Cannot create " + mDir);
+                    }
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                    PageBreakCodec.write(out, fingerprint, width, copy);
+                    out.close();
+                    out = null;
+                    if (!temp.renameTo(file)) {
+                        throw new IOException("Cannot rename " + temp);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to write " + file, e);
+                    temp.delete();
+                } finally {
+                    closeQuietly(out);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes every stored table.
+     */
+    public void clear() {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File[] files = mDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
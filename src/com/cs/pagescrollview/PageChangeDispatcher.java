@@ -0,0 +1,102 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import android.support.v4.view.ViewCompat;
+
+import com.cs.pagescrollview.PageScrollView.OnPageChangeListener;
+
+/**
+ * Delivers the page changes of a {@link PageScrollView}. Changes are only
+ * collected while scrolling and reported once per frame, on the next
+ * animation step, so a burst of turns or a long scroll ends in a single
+ * callback from the page before the burst to the page after it.
+ */
+class PageChangeDispatcher implements Runnable {
+    private final PageScrollView mView;
+    private final ArrayList<Entry> mEntries = new ArrayList<Entry>();
+    /**
+     * The last page reported, 0 before the first layout
+     */
+    private int mReportedPage;
+    private boolean mScheduled;
+
+    private static final class Entry {
+        final OnPageChangeListener listener;
+        final Executor executor;
+
+        Entry(OnPageChangeListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    PageChangeDispatcher(PageScrollView view) {
+        mView = view;
+    }
+
+    void add(OnPageChangeListener listener, Executor executor) {
+        mEntries.add(new Entry(listener, executor));
+        if (mReportedPage == 0 && mView.getHeight() > 0) {
+            // Changes are counted from the page the view is on now
+            mReportedPage = mView.getCurPage();
+        }
+    }
+
+    void remove(OnPageChangeListener listener) {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            if (mEntries.get(i).listener == listener) {
+                mEntries.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Called whenever the page may have changed, cheap enough for every scroll step.
+     */
+    void onPageMayHaveChanged() {
+        if (mScheduled || mEntries.isEmpty()) {
+            return;
+        }
+        if (mReportedPage == 0) {
+            // The first page is where the view starts, not a change
+            mReportedPage = mView.getCurPage();
+            return;
+        }
+        mScheduled = true;
+        ViewCompat.postOnAnimation(mView, this);
+    }
+
+    void cancel() {
+        if (mScheduled) {
+            mScheduled = false;
+            mView.removeCallbacks(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        final int oldPage = mReportedPage;
+        final int newPage = mView.getCurPage();
+        if (newPage == oldPage) {
+            return;
+        }
+        mReportedPage = newPage;
+        final int total = mView.getTotalPage();
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            final Entry entry = mEntries.get(i);
+            if (entry.executor == null) {
+                entry.listener.onPageChanged(oldPage, newPage, total);
+            } else {
+                entry.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        entry.listener.onPageChanged(oldPage, newPage, total);
+                    }
+                });
+            }
+        }
+    }
+}
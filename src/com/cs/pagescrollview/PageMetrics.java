@@ -0,0 +1,179 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import com.cs.pagescrollview.core.Histogram;
+
+/**
+ * Page turn latency and draw time of a {@link PageScrollView}. The latency of
+ * a turn runs from its input, the touch slop being crossed for a gesture or
+ * the call for a programmatic turn, to the vsync after the first frame that
+ * drew the new page, which is when that frame reaches the screen. Values are
+ * kept in fixed size histograms, poll them or add an
+ * {@link OnPageTurnListener}. Must be used on the UI thread.
+ * <p>
+ * Latency needs Jelly Bean or later, draw times are recorded everywhere.
+ */
+public class PageMetrics {
+    /**
+     * Gives up on a turn that did not draw within this many frames
+     */
+    private static final int MAX_WAIT_FRAMES = 10;
+    private final Histogram mTurnLatency = new Histogram();
+    private final Histogram mDrawTime = new Histogram();
+    private final ArrayList<OnPageTurnListener> mListeners = new ArrayList<OnPageTurnListener>();
+    private FrameWatcher mFrameWatcher;
+    /**
+     * Input time of the turn waiting for its frame, 0 if none
+     */
+    private long mPendingInputNanos;
+    private long mPendingDrawNanos;
+    private boolean mPendingDrawn;
+    private int mPendingFrames;
+
+    public interface OnPageTurnListener {
+        /**
+         * @param latencyNanos from the input of the turn to its first frame on screen
+         * @param drawNanos time spent drawing that frame in the PageScrollView
+         */
+        void onPageTurn(long latencyNanos, long drawNanos);
+    }
+
+    public void addOnPageTurnListener(OnPageTurnListener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeOnPageTurnListener(OnPageTurnListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @return how many turns were measured since the last {@link #reset()}
+     */
+    public long getTurnCount() {
+        return mTurnLatency.getCount();
+    }
+
+    /**
+     * @param percentile e.g. 50, 95 or 99
+     */
+    public long getTurnLatencyNanos(double percentile) {
+        return mTurnLatency.getPercentile(percentile);
+    }
+
+    /**
+     * @param percentile e.g. 50, 95 or 99
+     */
+    public long getDrawTimeNanos(double percentile) {
+        return mDrawTime.getPercentile(percentile);
+    }
+
+    public void reset() {
+        mTurnLatency.reset();
+        mDrawTime.reset();
+    }
+
+    /**
+     * Called after a page turn moved the content.
+     *
+     * @param inputNanos when the input of the turn happened, on the System.nanoTime clock
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void onPageTurn(long inputNanos) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        if (mPendingInputNanos != 0) {
+            // The previous turn never got a frame of its own, measure from its input
+            inputNanos = mPendingInputNanos;
+        }
+        mPendingInputNanos = inputNanos;
+        mPendingDrawn = false;
+        mPendingFrames = 0;
+        if (mFrameWatcher == null) {
+            mFrameWatcher = new FrameWatcher();
+        }
+        mFrameWatcher.watch();
+    }
+
+    void onDraw(long drawNanos) {
+        mDrawTime.record(drawNanos);
+        if (mPendingInputNanos != 0 && !mPendingDrawn) {
+            mPendingDrawn = true;
+            mPendingDrawNanos = drawNanos;
+        }
+    }
+
+    /**
+     * @return true once the pending turn is measured
+     */
+    private boolean onFrame(long frameTimeNanos) {
+        if (mPendingInputNanos == 0) {
+            return true;
+        }
+        if (!mPendingDrawn) {
+            if (++mPendingFrames > MAX_WAIT_FRAMES) {
+                // Nothing was redrawn, there is no latency to measure
+                mPendingInputNanos = 0;
+                return true;
+            }
+            return false;
+        }
+        final long latency = frameTimeNanos - mPendingInputNanos;
+        final long draw = mPendingDrawNanos;
+        mPendingInputNanos = 0;
+        mTurnLatency.record(latency);
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onPageTurn(latency, draw);
+        }
+        return true;
+    }
+
+    /**
+     * Stops waiting for the frame of a turn, e.g. when the view is detached.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void cancel() {
+        mPendingInputNanos = 0;
+        if (mFrameWatcher != null) {
+            mFrameWatcher.stop();
+        }
+    }
+
+    /**
+     * Kept apart so PageMetrics loads before Jelly Bean.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private final class FrameWatcher implements Choreographer.FrameCallback {
+        private boolean mWatching;
+
+        void watch() {
+            if (!mWatching) {
+                mWatching = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        void stop() {
+            if (mWatching) {
+                mWatching = false;
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // Frame callbacks run before the traversal, so the frame drawn after
+            // the turn is on screen by the vsync of the next callback
+            if (onFrame(frameTimeNanos)) {
+                mWatching = false;
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+    }
+}
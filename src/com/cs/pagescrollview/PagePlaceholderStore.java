@@ -0,0 +1,160 @@
+package com.cs.pagescrollview;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+/**
+ * Directory of compressed snapshots of the last page shown, one file per
+ * content fingerprint. A {@link PageScrollView} shows the snapshot of its
+ * content as the first frame when it is opened again and swaps in the live
+ * views once they are laid out at that page. Files are read on the calling
+ * thread and compressed and written in the background.
+ */
+public class PagePlaceholderStore {
+    private static final String TAG = "PagePlaceholderStore";
+    private static final int MAGIC = 0x50504801;
+    private static final int QUALITY = 85;
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(
+            new PageThreads("PagePlaceholderStore"));
+
+    private final File mDir;
+
+    static final class Placeholder {
+        final int page;
+        final Bitmap bitmap;
+
+        Placeholder(int page, Bitmap bitmap) {
+            this.page = page;
+            this.bitmap = bitmap;
+        }
+    }
+
+    /**
+     * Stores the snapshots in the cache directory, the system may delete them when space runs low.
+     */
+    public PagePlaceholderStore(Context context) {
+        this(new File(context.getCacheDir(), "page_placeholders"));
+    }
+
+    public PagePlaceholderStore(File dir) {
+        mDir = dir;
+    }
+
+    private File getFile(long fingerprint) {
+        return new File(mDir, Long.toHexString(fingerprint));
+    }
+
+    /**
+     * @return the stored snapshot, null if there is none
+     */
+    Placeholder load(long fingerprint) {
+        final File file = getFile(fingerprint);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readLong() != fingerprint) {
+                throw new IOException("Bad header");
+            }
+            final int page = in.readInt();
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            // Snapshots are opaque, half the memory of ARGB_8888 and faster to decode
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            final Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                throw new IOException("Cannot decode");
+            }
+            return new Placeholder(page, bitmap);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + file, e);
+            file.delete();
+            return null;
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Not enough memory to decode " + file);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Compresses and writes bitmap in the background and recycles it, readers never see a partial file.
+     *
+     * @param page the 1-based page the bitmap shows
+     */
+    void save(final long fingerprint, final int page, final Bitmap bitmap) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File file = getFile(fingerprint);
+                final File temp = new File(mDir, file.getName() + ".tmp");
+                DataOutputStream out = null;
+                try {
+                    if (!mDir.isDirectory() && !mDir.mkdirs()) {
+                        throw new IOException("Cannot create " + mDir);
+                    }
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                    out.writeInt(MAGIC);
+                    out.writeLong(fingerprint);
+                    out.writeInt(page);
+                    if (!bitmap.compress(Bitmap.CompressFormat.JPEG, QUALITY, out)) {
+                        throw new IOException("Cannot compress");
+                    }
+                    out.close();
+                    out = null;
+                    if (!temp.renameTo(file)) {
+                        throw new IOException("Cannot rename " + temp);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to write " + file, e);
+                    temp.delete();
+                } finally {
+                    closeQuietly(out);
+                    bitmap.recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes every stored snapshot.
+     */
+    public void clear() {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File[] files = mDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
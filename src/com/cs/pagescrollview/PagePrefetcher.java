@@ -0,0 +1,140 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+
+import android.support.v4.view.ViewCompat;
+import android.util.SparseIntArray;
+
+import com.cs.pagescrollview.PageScrollView.OnPagePrefetchListener;
+import com.cs.pagescrollview.core.PagePrediction;
+
+/**
+ * Tells the prefetch listeners of a {@link PageScrollView} which pages are
+ * likely to be shown next. The prediction follows the current page and the
+ * direction of travel, which is known as soon as a drag passes the touch slop,
+ * so loading starts before the turn lands. Pages that leave the prediction
+ * are cancelled. Like page changes, updates are coalesced to once per frame.
+ */
+class PagePrefetcher implements Runnable {
+    static final int DEFAULT_WINDOW = 2;
+
+    private final PageScrollView mView;
+    private final ArrayList<OnPagePrefetchListener> mListeners = new ArrayList<OnPagePrefetchListener>();
+    /**
+     * Page to priority of the pages announced to the listeners
+     */
+    private final SparseIntArray mPredicted = new SparseIntArray();
+    private int mWindow = DEFAULT_WINDOW;
+    /**
+     * Readers mostly go forward, so that is assumed until they do not
+     */
+    private int mDirection = 1;
+    private boolean mScheduled;
+
+    PagePrefetcher(PageScrollView view) {
+        mView = view;
+    }
+
+    void add(OnPagePrefetchListener listener) {
+        mListeners.add(listener);
+        // The new listener has not seen the current prediction yet
+        for (int i = 0; i < mPredicted.size(); i++) {
+            listener.onPrefetchPage(mPredicted.keyAt(i), mPredicted.valueAt(i));
+        }
+        schedule();
+    }
+
+    void remove(OnPagePrefetchListener listener) {
+        mListeners.remove(listener);
+    }
+
+    int getWindow() {
+        return mWindow;
+    }
+
+    void setWindow(int pages) {
+        if (mWindow != pages) {
+            mWindow = pages;
+            schedule();
+        }
+    }
+
+    /**
+     * @param direction positive when going forward, negative when going back, 0 keeps the last one
+     */
+    void setDirection(int direction) {
+        if (direction != 0 && (direction > 0) != (mDirection > 0)) {
+            mDirection = direction > 0 ? 1 : -1;
+            schedule();
+        }
+    }
+
+    /**
+     * Called whenever the page or the number of pages may have changed.
+     */
+    void onPageMayHaveChanged() {
+        schedule();
+    }
+
+    private void schedule() {
+        if (!mScheduled && !mListeners.isEmpty()) {
+            mScheduled = true;
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+
+    /**
+     * Cancels every predicted page, they are predicted again on the next change.
+     */
+    void cancel() {
+        if (mScheduled) {
+            mScheduled = false;
+            mView.removeCallbacks(this);
+        }
+        for (int i = 0; i < mPredicted.size(); i++) {
+            dispatchCancel(mPredicted.keyAt(i));
+        }
+        mPredicted.clear();
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        if (mView.getHeight() <= 0) {
+            return;
+        }
+        final int[] pages = PagePrediction.predict(mView.getCurPage(), mView.getTotalPage(), mDirection,
+                mWindow);
+        for (int i = mPredicted.size() - 1; i >= 0; i--) {
+            final int page = mPredicted.keyAt(i);
+            if (indexOf(pages, page) < 0) {
+                mPredicted.delete(page);
+                dispatchCancel(page);
+            }
+        }
+        for (int priority = 0; priority < pages.length; priority++) {
+            final int page = pages[priority];
+            if (mPredicted.get(page, -1) != priority) {
+                mPredicted.put(page, priority);
+                for (int i = mListeners.size() - 1; i >= 0; i--) {
+                    mListeners.get(i).onPrefetchPage(page, priority);
+                }
+            }
+        }
+    }
+
+    private void dispatchCancel(int page) {
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onCancelPrefetch(page);
+        }
+    }
+
+    private static int indexOf(int[] pages, int page) {
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] == page) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
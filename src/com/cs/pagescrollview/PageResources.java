@@ -0,0 +1,260 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+/**
+ * Background threads and cache memory shared by every paging view of the
+ * process, so showing several {@link PageScrollView}s at once does not
+ * multiply them. Work runs on one bounded pool where tasks submitted for a
+ * visible view go ahead of the rest, and the caches of all views share one
+ * memory budget. When the budget is exceeded or the system asks to trim
+ * memory, the caches of invisible views are dropped first.
+ * <p>
+ * Everything except the executors is used on the UI thread. Before Ice Cream
+ * Sandwich forward {@link Context#onTrimMemory} style callbacks yourself with
+ * {@link #onTrimMemory(int)}.
+ */
+public class PageResources {
+    private static final int MAX_THREADS = 4;
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_HIDDEN = 1;
+    private static PageResources sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final ArrayList<MemoryClient> mClients = new ArrayList<MemoryClient>();
+    private final Rect mTempRect = new Rect();
+    private int mMemoryBudget;
+
+    /**
+     * A cache that counts against the memory budget.
+     */
+    interface MemoryClient {
+        /**
+         * @return the view whose visibility decides what is trimmed first
+         */
+        View getOwner();
+
+        int getMemoryUsage();
+
+        /**
+         * Evicts until at most maxBytes are used.
+         */
+        void trimMemory(int maxBytes);
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+        final Runnable runnable;
+        final int priority;
+        final long sequence;
+
+        Task(Runnable runnable, int priority, long sequence) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(Task another) {
+            if (priority != another.priority) {
+                return priority < another.priority ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+    }
+
+    private PageResources(Context context) {
+        final int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        mExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new PageThreads("PageWorker"));
+        mMemoryBudget = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            registerCallbacks(context.getApplicationContext());
+        }
+    }
+
+    public static synchronized PageResources get(Context context) {
+        if (sInstance == null) {
+            sInstance = new PageResources(context);
+        }
+        return sInstance;
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private void registerCallbacks(Context context) {
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                PageResources.this.onTrimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                PageResources.this.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    public int getMemoryBudget() {
+        return mMemoryBudget;
+    }
+
+    /**
+     * @param maxBytes memory the caches of all paging views may use together,
+     *                 1/8 of the heap by default
+     */
+    public void setMemoryBudget(int maxBytes) {
+        mMemoryBudget = Math.max(0, maxBytes);
+        enforceBudget();
+    }
+
+    /**
+     * @return the memory all registered caches use now
+     */
+    public int getMemoryUsage() {
+        int usage = 0;
+        for (int i = 0; i < mClients.size(); i++) {
+            usage += mClients.get(i).getMemoryUsage();
+        }
+        return usage;
+    }
+
+    /**
+     * Runs tasks on the shared pool for a view, ahead of the tasks of hidden
+     * views while the view is visible. The visibility is read on the UI thread
+     * only, tasks submitted from other threads use the last one seen there.
+     */
+    final class OwnerExecutor implements Executor {
+        private final View mOwner;
+        private volatile int mPriority = PRIORITY_VISIBLE;
+
+        OwnerExecutor(View owner) {
+            mOwner = owner;
+        }
+
+        /**
+         * Reads the visibility of the owner again, call on the UI thread.
+         */
+        void updatePriority() {
+            mPriority = isVisible(mOwner) ? PRIORITY_VISIBLE : PRIORITY_HIDDEN;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                updatePriority();
+            }
+            mExecutor.execute(new Task(command, mPriority, mSequence.getAndIncrement()));
+        }
+    }
+
+    /**
+     * Runs tasks on the shared pool, ahead of the tasks of hidden views when
+     * owner is visible at the time a task is submitted.
+     */
+    OwnerExecutor executorFor(View owner) {
+        return new OwnerExecutor(owner);
+    }
+
+    void register(MemoryClient client) {
+        if (!mClients.contains(client)) {
+            mClients.add(client);
+        }
+        enforceBudget();
+    }
+
+    void unregister(MemoryClient client) {
+        mClients.remove(client);
+    }
+
+    private boolean isVisible(View view) {
+        return view.getWindowVisibility() == View.VISIBLE && view.isShown()
+                && view.getGlobalVisibleRect(mTempRect);
+    }
+
+    /**
+     * Called after a cache grew, trims the caches until they fit the budget.
+     */
+    void enforceBudget() {
+        int usage = getMemoryUsage();
+        if (usage <= mMemoryBudget) {
+            return;
+        }
+        // Invisible views give up their caches first
+        int visibleCount = 0;
+        for (int i = 0; i < mClients.size() && usage > mMemoryBudget; i++) {
+            final MemoryClient client = mClients.get(i);
+            if (isVisible(client.getOwner())) {
+                visibleCount++;
+            } else {
+                usage -= client.getMemoryUsage();
+                client.trimMemory(0);
+            }
+        }
+        if (usage <= mMemoryBudget || visibleCount == 0) {
+            return;
+        }
+        // Then the visible ones share the budget equally
+        trimVisible(mMemoryBudget / visibleCount);
+    }
+
+    private void trimVisible(int share) {
+        for (int i = 0; i < mClients.size(); i++) {
+            final MemoryClient client = mClients.get(i);
+            if (isVisible(client.getOwner()) && client.getMemoryUsage() > share) {
+                client.trimMemory(share);
+            }
+        }
+    }
+
+    /**
+     * Drops the caches of invisible views for any trim level, and those of
+     * visible views too as the pressure rises.
+     */
+    @SuppressLint("InlinedApi")
+    public void onTrimMemory(int level) {
+        for (int i = 0; i < mClients.size(); i++) {
+            final MemoryClient client = mClients.get(i);
+            if (!isVisible(client.getOwner())) {
+                client.trimMemory(0);
+            }
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                    && level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)) {
+            trimVisible(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // Keep half of the memory every visible view uses
+            for (int i = 0; i < mClients.size(); i++) {
+                final MemoryClient client = mClients.get(i);
+                if (isVisible(client.getOwner())) {
+                    client.trimMemory(client.getMemoryUsage() / 2);
+                }
+            }
+        }
+    }
+}
@@ -1,45 +1,107 @@
 package com.cs.pagescrollview;
 
-import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.ScrollView;
 
+import com.cs.pagescrollview.core.GestureClassifier;
+import com.cs.pagescrollview.core.PageBreaks;
+import com.cs.pagescrollview.core.PageMath;
+import com.cs.pagescrollview.core.PageTurnQueue;
+
 /**
- * ҳScrollView
+ * 分页滑动的ScrollView
  * @author chenshi
  *
  */
 public class PageScrollView extends ScrollView{
     private static final String TAG = PageScrollView.class.getSimpleName();
+    /**
+     * 翻页没有过渡动画, 适合墨水屏
+     */
+    public static final int TRANSITION_NONE = PageTransition.NONE;
+    /**
+     * 翻页时内容滑入
+     */
+    public static final int TRANSITION_SLIDE = PageTransition.SLIDE;
+    /**
+     * 翻页时内容淡入
+     */
+    public static final int TRANSITION_FADE = PageTransition.FADE;
     private float mLastMotionX;
     private float mLastMotionY;
-    private static final int TOUCH_STATE_REST = 0;
-    private static final int TOUCH_STATE_SCROLLING = 1;
-    private int mTouchState = TOUCH_STATE_REST;
+    /**
+     * 没有手势
+     */
+    private static final int GESTURE_IDLE = 0;
+    /**
+     * 已按下, 还没有超过touch slop
+     */
+    private static final int GESTURE_TRACKING = 1;
+    /**
+     * 超过touch slop, 事件由自己处理, 还没有决定是否翻页
+     */
+    private static final int GESTURE_DRAGGING = 2;
+    /**
+     * 已决定翻页, 本次手势剩下的MOVE事件直接丢弃
+     */
+    private static final int GESTURE_PAGED = 3;
+    /**
+     * 按下时内容不能滚动, 本次手势的事件都交给子View
+     */
+    private static final int GESTURE_IGNORED = 4;
+    private int mGestureState = GESTURE_IDLE;
+    private long mGestureDownTime;
     private static final int INVALID_POINTER = -1;
     private int mActivePointerId = INVALID_POINTER;
     private boolean mAllowLongPress = true;
-    private boolean mFlingFinished = true;
-    private static final boolean ENABLE_LEFT_RIGHT_SLOP = false;
-    private static final int PAGING_TOUCH_SLOP = 96;
+    /**
+     * 没有快速滑动时翻页需要的最小距离(dp)
+     */
+    private static final int PAGING_TOUCH_SLOP = 32;
+    /**
+     * 超过该速度(dp/s)的快速滑动立即翻页, 不需要滑够最小距离
+     */
+    private static final int PAGING_FLING_VELOCITY = 400;
+    /**
+     * 一次快速滑动最多翻过的页数
+     */
+    private static final int MAX_FLING_PAGES = 3;
     private final int mTouchSlop;
     private final int mPagingTouchSlop;
+    private final int mMaximumVelocity;
+    /**
+     * 根据滑动距离和速度判断是否翻页以及翻几页
+     */
+    private final GestureClassifier mGestureClassifier;
+    private VelocityTracker mVelocityTracker;
     private boolean mDisallowInterceptTouch;
     private Paint mPaint;
     private float mTrackWidth, mThumbWidth, mRadius;
@@ -47,10 +109,260 @@ public class PageScrollView extends ScrollView{
     private final Rect mTempRect = new Rect();
     private boolean mFixLastPageHeight;
     /**
-     * С߶
+     * 滚动条最小高度
      */
     private final static int M_SCROLL_MIN_HEIGHT = 20;
     private static final boolean DEBUG = false;
+    /**
+     * 手势各阶段的跟踪记录, 关闭时不产生任何开销
+     */
+    private final PageTrace mTrace = new PageTrace(TAG);
+    /**
+     * 翻页延迟和绘制耗时统计, 为null时不启用
+     */
+    private PageMetrics mMetrics;
+    /**
+     * 页码变化的通知, 每帧最多通知一次
+     */
+    private final PageChangeDispatcher mPageChangeDispatcher = new PageChangeDispatcher(this);
+    /**
+     * 预测接下来要显示的页, 通知预加载
+     */
+    private final PagePrefetcher mPagePrefetcher = new PagePrefetcher(this);
+    /**
+     * 实现了OnPageVisibilityChangeListener的子View, 进出当前页时通知它们
+     */
+    private final PageVisibilityTracker mVisibilityTracker = new PageVisibilityTracker();
+    /**
+     * 内容中的PageSection, 接近当前页时才加载
+     */
+    private final PageSectionLoader mSectionLoader = new PageSectionLoader(this);
+    /**
+     * 手指超过touch slop的时间, 以及当前翻页的输入时间(纳秒), 0表示由代码调用翻页
+     */
+    private long mDragStartTime;
+    private long mTurnInputNanos;
+    /**
+     * 本帧内请求的翻页, 在下一帧动画阶段合并成一次moveToPage
+     */
+    private final PageTurnQueue mTurnQueue = new PageTurnQueue();
+    private boolean mTurnScheduled;
+    private final Runnable mFlushPageTurns = new Runnable() {
+        @Override
+        public void run() {
+            mTurnScheduled = false;
+            flushPageTurns();
+        }
+    };
+    /**
+     * 音量键是否翻页
+     */
+    private boolean mVolumeKeyPaging;
+    /**
+     * 通过PageAdapter提供页面时的内容容器, 只保留当前页附近的页面
+     */
+    private VirtualPageContainer mPageContainer;
+    private int mOffscreenPageLimit;
+    /**
+     * 预渲染的相邻页面缓存, 为null时不启用
+     */
+    private PageSnapshotCache mSnapshotCache;
+    /**
+     * 预渲染缓存在进程共享内存预算中的登记
+     */
+    private final PageResources.MemoryClient mMemoryClient = new PageResources.MemoryClient() {
+        @Override
+        public View getOwner() {
+            return PageScrollView.this;
+        }
+
+        @Override
+        public int getMemoryUsage() {
+            return mSnapshotCache != null ? mSnapshotCache.size() : 0;
+        }
+
+        @Override
+        public void trimMemory(int maxBytes) {
+            if (mSnapshotCache != null) {
+                mSnapshotCache.trimToSize(maxBytes);
+            }
+        }
+    };
+    /**
+     * 分页位置索引, 在onLayout中建立, 分页位置对齐到子View或文字行的边界
+     */
+    private final PageBreakIndex mPageBreaks = new PageBreakIndex();
+    /**
+     * 分页时内容的实际高度(补齐最后一页之前)和宽度
+     */
+    private int mContentHeight;
+    private int mBreaksWidth;
+    /**
+     * 需要重新分页的内容起始位置, Integer.MAX_VALUE表示内容没有变化
+     */
+    private int mChangedOffset = Integer.MAX_VALUE;
+    /**
+     * 测量时重新分页了, onLayout需要更新焦点索引和滚动条
+     */
+    private boolean mPageBreaksChanged;
+    /**
+     * 分页位置的持久化存储, 为null时不启用
+     */
+    private PageBreakStore mBreakStore;
+    private long mContentFingerprint;
+    /**
+     * 在后台读取的该内容各尺寸的分页位置, 读取完成前为null
+     */
+    private ArrayList<PageBreakStore.Table> mLoadedBreaks;
+    /**
+     * 上次显示页面的快照存储, 为null时不启用
+     */
+    private PagePlaceholderStore mPlaceholderStore;
+    private long mPlaceholderFingerprint;
+    /**
+     * 启动时的占位快照, 是否正在显示, 以及第一帧是否推迟了内容的测量
+     */
+    private Bitmap mPlaceholder;
+    private boolean mShowingPlaceholder;
+    private boolean mMeasureDeferred;
+    private final Runnable mMeasureContent = new Runnable() {
+        @Override
+        public void run() {
+            mMeasureDeferred = false;
+            requestLayout();
+        }
+    };
+    /**
+     * 最近一次保存或从存储读取的分页位置及其宽度, 相同时不再重复保存
+     */
+    private final PageBreaks mStoredBreaks = new PageBreaks();
+    private int mStoredWidth;
+    /**
+     * 正在使用从存储读取、还没有验证的分页位置
+     */
+    private boolean mBreaksRestored;
+    private final MessageQueue.IdleHandler mValidateBreaks = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            return !validateRestoredBreaks();
+        }
+    };
+    /**
+     * 从保存的状态中恢复的页码, 分页完成后跳转
+     */
+    private int mPendingPage;
+    /**
+     * 可获取焦点的子View按上下边界建立的索引, onLayout后失效, 翻页时按需重建
+     */
+    private final FocusIndex mFocusIndex = new FocusIndex();
+    /**
+     * 翻页过渡动画, 只在Jelly Bean及以上创建
+     */
+    private PageTransition mTransition;
+    private Bitmap mSnapshot;
+    private final Runnable mReleaseSnapshot = new Runnable() {
+        @Override
+        public void run() {
+            mSnapshot = null;
+            if (!mShowingPlaceholder) {
+                mPlaceholder = null;
+            }
+            invalidate();
+            warmUpSnapshots();
+        }
+    };
+    /**
+     * 滚动条几何信息缓存, 只在onLayout/onScrollChanged时重新计算, onDraw中不再分配对象
+     */
+    private final ScrollBarState mScrollBarState = new ScrollBarState();
+    private final RectF mTempRectF = new RectF();
+    /**
+     * GPU的最大纹理尺寸, 在第一次硬件加速绘制时得到, 0表示还不知道
+     */
+    private int mMaxTextureHeight;
+
+    /**
+     * Receives the settled page changes of a {@link PageScrollView}.
+     */
+    public interface OnPageChangeListener {
+        /**
+         * @param oldPage the page reported before, 1-based
+         * @param newPage the current page, 1-based
+         * @param totalPage the number of pages
+         */
+        void onPageChanged(int oldPage, int newPage, int totalPage);
+    }
+
+    /**
+     * Loads the pages a {@link PageScrollView} is likely to show next before
+     * they are turned to.
+     */
+    public interface OnPagePrefetchListener {
+        /**
+         * Called again with the new priority when the priority of a page changes.
+         *
+         * @param page the 1-based page to load
+         * @param priority 0 for the most likely page, higher ones are needed later
+         */
+        void onPrefetchPage(int page, int priority);
+
+        /**
+         * The page left the prediction, loading it may stop.
+         */
+        void onCancelPrefetch(int page);
+    }
+
+    /**
+     * Implemented by a descendant of the content to learn when it enters or
+     * leaves the page window, e.g. to pause looping animations or video
+     * previews on other pages. Android still considers such views visible.
+     */
+    public interface OnPageVisibilityChangeListener {
+        /**
+         * Called on the UI thread after a scroll or a layout moved the view
+         * into or out of the page window. Views start out visible, so the
+         * first call for a view off the page is with false.
+         */
+        void onPageVisibilityChanged(boolean visible);
+    }
+
+    static class SavedState extends BaseSavedState {
+        int page;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            page = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(page);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    private static final class ScrollBarState {
+        final RectF track = new RectF();
+        final RectF thumb = new RectF();
+        boolean visible;
+        int page;
+    }
 
     public PageScrollView(Context context) {
         this(context, null);
@@ -69,8 +381,14 @@ public class PageScrollView extends ScrollView{
             int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
         final ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        final float density = context.getResources().getDisplayMetrics().density;
         mTouchSlop = configuration.getScaledTouchSlop();
-        mPagingTouchSlop = PAGING_TOUCH_SLOP;
+        mPagingTouchSlop = (int) (PAGING_TOUCH_SLOP * density + 0.5f);
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        final int pagingFlingVelocity = Math.max(configuration.getScaledMinimumFlingVelocity(),
+                (int) (PAGING_FLING_VELOCITY * density + 0.5f));
+        mGestureClassifier = new GestureClassifier(mPagingTouchSlop, pagingFlingVelocity,
+                mMaximumVelocity, MAX_FLING_PAGES);
         init(context, attrs, defStyleAttr,  defStyleRes);
     }
     
@@ -91,6 +409,10 @@ public class PageScrollView extends ScrollView{
         mTrackWidth = a.getDimension(R.styleable.PageScrollView_trackWidth, 1);
         mThumbWidth = a.getDimension(R.styleable.PageScrollView_thumbWidth, 0);
         mFixLastPageHeight = a.getBoolean(R.styleable.PageScrollView_fixLastPageHeight, true);
+        mOffscreenPageLimit = a.getInt(R.styleable.PageScrollView_offscreenPageLimit, 1);
+        final int transition = a.getInt(R.styleable.PageScrollView_pageTransition, TRANSITION_NONE);
+        setVerticalPagingEnabled(a.getBoolean(R.styleable.PageScrollView_verticalPaging, true));
+        setHorizontalPagingEnabled(a.getBoolean(R.styleable.PageScrollView_horizontalPaging, false));
         a.recycle();
         setVerticalScrollBarEnabled(false);
         setHorizontalScrollBarEnabled(false);
@@ -102,275 +424,387 @@ public class PageScrollView extends ScrollView{
         mPaint.setDither(true);
         mPaint.setStrokeCap(Paint.Cap.ROUND);
         mPaint.setStrokeJoin(Paint.Join.ROUND);
+        mTrace.setEnabled(DEBUG);
+        setPageTransition(transition);
     }
-    
-    @Override
-    public boolean onTouchEvent(MotionEvent ev) {
-        boolean ret;
-        Log.d(TAG, "----onTouchEvent----");
-        if (!canScroll()) {
-            // We don't want the events.  Let them fall through to the all apps view.
-            ret = false;
-            if (DEBUG) {
-                Log.d(TAG, String.format("touchdebug onTouchEvent return(%s)", ret));
-            }
-            return ret;
-        }
-        final int action = ev.getAction();
-        if (DEBUG) {
-            Log.d(TAG, String.format("onTouchEvent action %s up(%s)", action & MotionEvent.ACTION_MASK, MotionEvent.ACTION_UP));
-        }
-        switch (action & MotionEvent.ACTION_MASK) {
-        case MotionEvent.ACTION_DOWN:
-            /*
-             * If being flinged and user touches, stop the fling. isFinished
-             * will be false if being flinged.
-             */
-            mFlingFinished = true;
-            // Remember where the motion event started
-            mLastMotionX = ev.getX();
-            mLastMotionY = ev.getY();
-            mActivePointerId = ev.getPointerId(0);
-            break;
-        case MotionEvent.ACTION_MOVE:
-            final int pointerIndex = ev.findPointerIndex(mActivePointerId);
-            if (pointerIndex > -1) {
-                final float x =  ev.getX(pointerIndex);
-                final float y =  ev.getY(pointerIndex);
-                if (mTouchState == TOUCH_STATE_SCROLLING) {
-                    checkStartScroll(x, y);
-                }else {
-                    checkInScrolling(ev, x, y);
-                }
-            }
-            break;
-        case MotionEvent.ACTION_UP:
-            if (DEBUG) {
-                Log.d(TAG, "touchdebug onTouchEvent up");
-            }
-            disallowParentAndChildInterceptTouchEvent(false);
-            boolean startScroll = true;
-            if (mTouchState == TOUCH_STATE_SCROLLING) {
-                startScroll = false;
-                final int index = ev.findPointerIndex(mActivePointerId);
-                if (index > -1) {
-                    final float x =  ev.getX(index);
-                    final float y =  ev.getY(index);
-                    startScroll = checkStartScroll(x, y);
-                }
-            }
-            if(!startScroll){
-                Log.i(TAG, "out of min distance:" + mPagingTouchSlop);
-            }
-            mFlingFinished = true;
-            mTouchState = TOUCH_STATE_REST;
-            mActivePointerId = INVALID_POINTER;
-            break;
-        case MotionEvent.ACTION_CANCEL:
-            mTouchState = TOUCH_STATE_REST;
-            mActivePointerId = INVALID_POINTER;
-            break;
-        case MotionEvent.ACTION_POINTER_UP:
-            onSecondaryPointerUp(ev);
-            break;
+
+    /**
+     * Animates page turns with {@link #TRANSITION_SLIDE} or {@link #TRANSITION_FADE}.
+     * The scroll position is set at once as with {@link #TRANSITION_NONE}, only the
+     * content is animated on its render node, and the view falls back to instant
+     * turns by itself when frames run over budget. Needs Jelly Bean or later.
+     */
+    @SuppressLint("NewApi")
+    public void setPageTransition(int transition) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
         }
-        ret = true;
-        if (DEBUG) {
-            Log.d(TAG, String.format("touchdebug onTouchEvent return(%s)", ret));
+        if (mTransition == null) {
+            if (transition == TRANSITION_NONE) {
+                return;
+            }
+            mTransition = new PageTransition();
         }
-        return ret;
+        mTransition.setMode(transition);
     }
 
-    private boolean checkStartScroll(float x, float y) {
-        boolean startScroll = false;
-        float slope = 0;
-        final float dx = x - mLastMotionX;
-        final float dy = y - mLastMotionY;
-        if (Math.abs(dx) > mPagingTouchSlop) {
-            startScroll = ENABLE_LEFT_RIGHT_SLOP;
-        }
-        if (Math.abs(dy) > mPagingTouchSlop) {
-            startScroll = true;
-        }
-        if (startScroll) {
-            disallowParentAndChildInterceptTouchEvent(true);
-        }
-        if (startScroll) {
-            if (dx != 0) {
-                slope = Math.abs(dy / dx);
-            } else {
-                slope = 2; //һֱdy
-            }
-            mFlingFinished = false;
-            if (slope >= 1) {
-                if (dy < 0) {
-                    nextPage();
-                }else {
-                    prePage();
-                }
-            }else {
-                if (ENABLE_LEFT_RIGHT_SLOP) {
-                    if (dx < 0) {
-                        nextPage();
-                    }else {
-                        prePage();
-                    }
-                }
-            }
-            mFlingFinished = true;
-            mTouchState = TOUCH_STATE_REST;
-            mActivePointerId = INVALID_POINTER;
+    @SuppressLint("NewApi")
+    public int getPageTransition() {
+        return mTransition != null ? mTransition.getMode() : TRANSITION_NONE;
+    }
+
+    /**
+     * @return true when the transition fell back to instant turns because frames were too slow
+     */
+    @SuppressLint("NewApi")
+    public boolean isPageTransitionDegraded() {
+        return mTransition != null && mTransition.isDegraded();
+    }
+
+    @SuppressLint("NewApi")
+    private void startPageTransition(int scrollDelta) {
+        final View child = getChildAt(0);
+        if (mTransition != null && child != null) {
+            mTransition.start(child, scrollDelta);
         }
-        Log.d(TAG, String.format("startScroll:%b,slope:%s,dy:%s,dx:%s", startScroll, slope, dy, dx));
-        return startScroll;
     }
 
-    private void disallowParentAndChildInterceptTouchEvent(boolean disabled) {
-        if (mDisallowInterceptTouch != disabled) {
-            mDisallowInterceptTouch = disabled;
-            requestChildDisallowInterceptTouchEvent(disabled);
-            getParent().requestDisallowInterceptTouchEvent(disabled);
+    /**
+     * @return the gesture trace of this view, enable it with {@link #setTracingEnabled(boolean)}
+     */
+    public PageTrace getTrace() {
+        return mTrace;
+    }
+
+    public void setTracingEnabled(boolean enabled) {
+        mTrace.setEnabled(enabled);
+    }
+
+    /**
+     * Measures page turn latency and draw time, read them from {@link #getMetrics()}.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled && mMetrics == null) {
+            mMetrics = new PageMetrics();
+        } else if (!enabled && mMetrics != null) {
+            mMetrics.cancel();
+            mMetrics = null;
         }
     }
 
-    private void checkInScrolling(MotionEvent ev, float x, float y) {
-        if (mActivePointerId == INVALID_POINTER) {
-            if (DEBUG) {
-                Log.d(TAG, "not init LastMotion try init");
-            }
-            mLastMotionX = x;
-            mLastMotionY = y;
-            mActivePointerId = ev.getPointerId(0);
-            mAllowLongPress = true;
-        }else {
-            final int xDiff = (int) Math.abs(x - mLastMotionX);
-            final int yDiff = (int) Math.abs(y - mLastMotionY);
-            final int touchSlop = mTouchSlop;
-            boolean xMoved = xDiff > touchSlop;
-            boolean yMoved = yDiff > touchSlop;
-            if (xMoved || yMoved) {
-                // Scroll if the user moved far enough along the X axis
-                mTouchState = TOUCH_STATE_SCROLLING;
-                // Either way, cancel any pending longpress
-                if (mAllowLongPress) {
-                    mAllowLongPress = false;
-                    // Try canceling the long press. It could also have been scheduled
-                    // by a distant descendant, so use the mAllowLongPress flag to block
-                    // everything
-                    cancelChildLongPress();
-                    this.cancelLongPress();
-                }
-            }
+    /**
+     * @return the page turn metrics, null when disabled
+     */
+    public PageMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * The listener is called on the UI thread, at most once per frame.
+     */
+    public void addOnPageChangeListener(OnPageChangeListener listener) {
+        mPageChangeDispatcher.add(listener, null);
+    }
+
+    /**
+     * @param executor runs the listener, use it to keep heavy work like analytics off the UI thread
+     */
+    public void addOnPageChangeListener(OnPageChangeListener listener, Executor executor) {
+        mPageChangeDispatcher.add(listener, executor);
+    }
+
+    public void removeOnPageChangeListener(OnPageChangeListener listener) {
+        mPageChangeDispatcher.remove(listener);
+    }
+
+    /**
+     * The listener is called on the UI thread with the pages ahead in the
+     * direction of travel and the page behind, see {@link #setPrefetchWindow(int)}.
+     */
+    public void addOnPagePrefetchListener(OnPagePrefetchListener listener) {
+        mPagePrefetcher.add(listener);
+    }
+
+    public void removeOnPagePrefetchListener(OnPagePrefetchListener listener) {
+        mPagePrefetcher.remove(listener);
+    }
+
+    public int getPrefetchWindow() {
+        return mPagePrefetcher.getWindow();
+    }
+
+    /**
+     * @param pages how many pages ahead to prefetch, 2 by default
+     */
+    public void setPrefetchWindow(int pages) {
+        mPagePrefetcher.setWindow(Math.max(0, pages));
+    }
+
+    /**
+     * Starts measuring the latency of a turn that just moved the content.
+     */
+    private void onPageTurned() {
+        if (mMetrics != null) {
+            mMetrics.onPageTurn(mTurnInputNanos != 0 ? mTurnInputNanos : System.nanoTime());
         }
     }
+    
+    public boolean isVerticalPagingEnabled() {
+        return mGestureClassifier.isVerticalPagingEnabled();
+    }
 
     /**
-     * @return True is long presses are still allowed for the current touch
+     * @param enabled turn pages on up/down gestures, enabled by default
      */
-    public boolean allowLongPress() {
-        return mAllowLongPress;
+    public void setVerticalPagingEnabled(boolean enabled) {
+        mGestureClassifier.setVerticalPagingEnabled(enabled);
+    }
+
+    public boolean isHorizontalPagingEnabled() {
+        return mGestureClassifier.isHorizontalPagingEnabled();
     }
 
     /**
-     * Set true to allow long-press events to be triggered, usually checked by
-     * {@link Launcher} to accept or block dpad-initiated long-presses.
+     * @param enabled turn pages on left/right gestures, swiping left goes to the next page
      */
-    public void setAllowLongPress(boolean allowLongPress) {
-        mAllowLongPress = allowLongPress;
+    public void setHorizontalPagingEnabled(boolean enabled) {
+        mGestureClassifier.setHorizontalPagingEnabled(enabled);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        // The page is already turned, the rest of the moves don't need to reach anyone
+        if (mGestureState == GESTURE_PAGED
+                && (ev.getAction() & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_MOVE) {
+            return true;
+        }
+        return super.dispatchTouchEvent(ev);
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        boolean ret;
-        Log.d(TAG, "----onInterceptTouchEvent----");
-        if (!canScroll()) {
-            // We don't want the events.  Let them fall through to the all apps view.
-            ret = false;
-            if (DEBUG) {
-                Log.d(TAG, String.format("touchdebug onInterceptTouchEvent return(%s)", ret));
-            }
-            return ret;
+        final int action = ev.getAction() & MotionEvent.ACTION_MASK;
+        if (action == MotionEvent.ACTION_DOWN) {
+            onGestureDown(ev);
         }
-        final int action = ev.getAction();
-        if (DEBUG) {
-            Log.d(TAG, String.format("onInterceptTouchEvent action %s up(%s) evx %s evy %s",
-                action & MotionEvent.ACTION_MASK, MotionEvent.ACTION_UP, ev.getX(), ev.getY()));
+        if (mGestureState == GESTURE_IGNORED) {
+            // We don't want the events.  Let them fall through to the all apps view.
+            mTrace.record(PageTrace.PHASE_INTERCEPT, action, 0);
+            return false;
         }
-        if ((action == MotionEvent.ACTION_MOVE) && (mTouchState != TOUCH_STATE_REST)) {
-            ret = true;
-            if (DEBUG) {
-                Log.d(TAG, String.format("touchdebug onInterceptTouchEvent return(%s)", ret));
-            }
-            return ret;
-        }
-        switch (action & MotionEvent.ACTION_MASK) {
-            case MotionEvent.ACTION_MOVE: {
-                final int pointerIndex = ev.findPointerIndex(mActivePointerId);
-                if (pointerIndex == -1) {
-                    Log.e(TAG, "pointerIndex out of range return super onInterceptTouchEvent");
-                    ret = super.onInterceptTouchEvent(ev);
-                    if (DEBUG) {
-                        Log.d(TAG, String.format("touchdebug onInterceptTouchEvent return(%s)", ret));
-                    }
-                    return ret;
-                }
-                final float x = ev.getX(pointerIndex);
-                final float y = ev.getY(pointerIndex);
-                checkInScrolling(ev, x, y);
-                break;
-            }
-            case MotionEvent.ACTION_DOWN: {
-                if (DEBUG) {
-                    Log.d(TAG, "touchdebug onInterceptTouchEvent ACTION_DOWN");
-                }
-                final float x = ev.getX();
-                final float y = ev.getY();
-                mLastMotionX = x;
-                mLastMotionY = y;
-                mActivePointerId = ev.getPointerId(0);
-                mAllowLongPress = true;
-                /*
-                 * If being flinged and user touches the screen, initiate drag;
-                 * otherwise don't.  mScroller.isFinished should be false when
-                 * being flinged.
-                 */
-                mTouchState = mFlingFinished ? TOUCH_STATE_REST : TOUCH_STATE_SCROLLING;
-                break;
+        trackVelocity(ev);
+        switch (action) {
+        case MotionEvent.ACTION_MOVE:
+            if (mGestureState == GESTURE_TRACKING) {
+                checkTouchSlop(ev);
             }
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP:
-                if (DEBUG) {
-                    Log.d(TAG, "touchdebug onInterceptTouchEvent up");
-                }
-                // Release the drag
-                mTouchState = TOUCH_STATE_REST;
-                mActivePointerId = INVALID_POINTER;
-                mAllowLongPress = false;
-                break;
-
-            case MotionEvent.ACTION_POINTER_UP:
-                onSecondaryPointerUp(ev);
-                break;
+            break;
+        case MotionEvent.ACTION_CANCEL:
+        case MotionEvent.ACTION_UP:
+            // Release the drag
+            onGestureEnd();
+            break;
+        case MotionEvent.ACTION_POINTER_UP:
+            onSecondaryPointerUp(ev);
+            break;
         }
         /*
          * The only time we want to intercept motion events is if we are in the
          * drag mode.
          */
-        ret = mTouchState != TOUCH_STATE_REST;
-        if (DEBUG) {
-            Log.d(TAG, String.format("touchdebug onInterceptTouchEvent return(%s)", ret));
-        }
+        final boolean ret = mGestureState == GESTURE_DRAGGING || mGestureState == GESTURE_PAGED;
+        mTrace.record(PageTrace.PHASE_INTERCEPT, action, ret ? 1 : 0);
         return ret;
     }
 
-    private void cancelChildLongPress() {
-        int count = getChildCount();
-        for (int i = 0; i < count; i++) {
-            View child = getChildAt(i);
-            if (child == null)
-                continue;
-            child.cancelLongPress();
-        }
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        final int action = ev.getAction() & MotionEvent.ACTION_MASK;
+        if (action == MotionEvent.ACTION_DOWN) {
+            onGestureDown(ev);
+        }
+        if (mGestureState == GESTURE_IGNORED) {
+            mTrace.record(PageTrace.PHASE_TOUCH, action, 0);
+            return false;
+        }
+        trackVelocity(ev);
+        switch (action) {
+        case MotionEvent.ACTION_MOVE:
+            if (mGestureState == GESTURE_TRACKING) {
+                checkTouchSlop(ev);
+            }
+            if (mGestureState == GESTURE_DRAGGING) {
+                decidePage(ev);
+            }
+            break;
+        case MotionEvent.ACTION_UP:
+            if (mGestureState == GESTURE_DRAGGING && !decidePage(ev)) {
+                // out of min distance
+                mTrace.record(PageTrace.PHASE_PAGE, 0, mPagingTouchSlop);
+            }
+            onGestureEnd();
+            break;
+        case MotionEvent.ACTION_CANCEL:
+            onGestureEnd();
+            break;
+        case MotionEvent.ACTION_POINTER_UP:
+            onSecondaryPointerUp(ev);
+            break;
+        }
+        mTrace.record(PageTrace.PHASE_TOUCH, action, 1);
+        if (DEBUG && action == MotionEvent.ACTION_UP) {
+            mTrace.dump();
+        }
+        return true;
+    }
+
+    /**
+     * Starts a gesture, whether the content can scroll is decided here once for the whole gesture.
+     */
+    private void onGestureDown(MotionEvent ev) {
+        if (mGestureState != GESTURE_IDLE && mGestureDownTime == ev.getDownTime()) {
+            // Already started by onInterceptTouchEvent
+            return;
+        }
+        mGestureDownTime = ev.getDownTime();
+        final float x = ev.getX();
+        final float y = ev.getY();
+        mTrace.record(PageTrace.PHASE_DOWN, (int) x, (int) y);
+        // Remember where the motion event started
+        mLastMotionX = x;
+        mLastMotionY = y;
+        mActivePointerId = ev.getPointerId(0);
+        mAllowLongPress = true;
+        if (canScroll()) {
+            mGestureState = GESTURE_TRACKING;
+            // The finger may be about to turn a page, render the neighbours now
+            warmUpSnapshots();
+        } else {
+            mGestureState = GESTURE_IGNORED;
+        }
+    }
+
+    private void onGestureEnd() {
+        disallowParentAndChildInterceptTouchEvent(false);
+        mGestureState = GESTURE_IDLE;
+        mActivePointerId = INVALID_POINTER;
+        mAllowLongPress = false;
+        releaseVelocityTracker();
+    }
+
+    private void checkTouchSlop(MotionEvent ev) {
+        final int pointerIndex = ev.findPointerIndex(mActivePointerId);
+        if (pointerIndex == -1) {
+            mTrace.record(PageTrace.PHASE_ERROR, mActivePointerId, 0);
+            return;
+        }
+        final float dx = ev.getX(pointerIndex) - mLastMotionX;
+        final float dy = ev.getY(pointerIndex) - mLastMotionY;
+        final int xDiff = (int) Math.abs(dx);
+        final int yDiff = (int) Math.abs(dy);
+        if (xDiff > mTouchSlop || yDiff > mTouchSlop) {
+            mGestureState = GESTURE_DRAGGING;
+            mDragStartTime = ev.getEventTime();
+            mTrace.record(PageTrace.PHASE_SLOP, xDiff, yDiff);
+            // Moving the finger up or left goes forward, start loading that way now
+            mPagePrefetcher.setDirection(yDiff >= xDiff ? (dy < 0 ? 1 : -1) : (dx < 0 ? 1 : -1));
+            // Either way, cancel any pending longpress
+            if (mAllowLongPress) {
+                mAllowLongPress = false;
+                // Try canceling the long press. It could also have been scheduled
+                // by a distant descendant, so use the mAllowLongPress flag to block
+                // everything
+                cancelChildLongPress();
+                this.cancelLongPress();
+            }
+        }
+    }
+
+    /**
+     * Asks the classifier whether the drag turns pages, once it does the gesture is over
+     * for paging purposes and its remaining moves are dropped.
+     *
+     * @return true if the gesture is decided
+     */
+    private boolean decidePage(MotionEvent ev) {
+        final int pointerIndex = ev.findPointerIndex(mActivePointerId);
+        if (pointerIndex == -1) {
+            return false;
+        }
+        final float dx = ev.getX(pointerIndex) - mLastMotionX;
+        final float dy = ev.getY(pointerIndex) - mLastMotionY;
+        float vx = 0;
+        float vy = 0;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+            vx = mVelocityTracker.getXVelocity(mActivePointerId);
+            vy = mVelocityTracker.getYVelocity(mActivePointerId);
+        }
+        final int pages = mGestureClassifier.classify(dx, dy, vx, vy);
+        if (pages == GestureClassifier.UNDECIDED) {
+            return false;
+        }
+        mGestureState = GESTURE_PAGED;
+        disallowParentAndChildInterceptTouchEvent(true);
+        if (pages != 0) {
+            // Event times are uptimeMillis, which runs on the same clock as System.nanoTime
+            queuePageTurn(pages, mDragStartTime * 1000000L);
+        }
+        mTrace.record(PageTrace.PHASE_PAGE, (int) dx, (int) dy);
+        return true;
+    }
+
+    /**
+     * Feeds the tracker, which also picks up the historical samples batched into a move.
+     */
+    private void trackVelocity(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        if ((ev.getAction() & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_DOWN) {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(ev);
+    }
+
+    private void releaseVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void disallowParentAndChildInterceptTouchEvent(boolean disabled) {
+        if (mDisallowInterceptTouch != disabled) {
+            mDisallowInterceptTouch = disabled;
+            requestChildDisallowInterceptTouchEvent(disabled);
+            getParent().requestDisallowInterceptTouchEvent(disabled);
+        }
+    }
+
+    /**
+     * @return True is long presses are still allowed for the current touch
+     */
+    public boolean allowLongPress() {
+        return mAllowLongPress;
+    }
+
+    /**
+     * Set true to allow long-press events to be triggered, usually checked by
+     * {@link Launcher} to accept or block dpad-initiated long-presses.
+     */
+    public void setAllowLongPress(boolean allowLongPress) {
+        mAllowLongPress = allowLongPress;
+    }
+
+    private void cancelChildLongPress() {
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child == null)
+                continue;
+            child.cancelLongPress();
+        }
     }
 
     private void requestChildDisallowInterceptTouchEvent(boolean disabled) {
@@ -401,14 +835,29 @@ public class PageScrollView extends ScrollView{
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (canScroll()) {
+        if (mScrollBarState.visible) {
             drawScrollBars(canvas);
         }
     }
     
     private void drawScrollBars(Canvas canvas) {
+        final ScrollBarState state = mScrollBarState;
         mPaint.setStyle(Style.FILL);
         mPaint.setColor(mTrackColor);
+        canvas.drawRect(state.track, mPaint);
+        mPaint.setColor(mThumbColor);
+        canvas.drawRoundRect(state.thumb, mRadius, mRadius, mPaint);
+    }
+
+    /**
+     * 重新计算滚动条的轨道和滑块位置
+     */
+    private void updateScrollBarState() {
+        final ScrollBarState state = mScrollBarState;
+        state.visible = canScroll();
+        if (!state.visible) {
+            return;
+        }
         if (mThumbWidth <= 0) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
                 mThumbWidth = getScrollBarSize();
@@ -418,64 +867,56 @@ public class PageScrollView extends ScrollView{
         }
         float left = getWidth() - getPaddingRight() - mThumbWidth / 2 - mTrackWidth / 2;
         float right = left + mTrackWidth / 2;
-        canvas.drawRect(left, getPaddingTop(), right, getTotalHeight() - getPaddingBottom(), mPaint);
-        mPaint.setColor(mThumbColor);
-        canvas.drawRoundRect(getProgressRect(mThumbWidth), mRadius, mRadius, mPaint);
+        state.track.set(left, getPaddingTop(), right, getTotalHeight() - getPaddingBottom());
+        state.page = getCurPage();
+        getProgressRect(mThumbWidth, state.page, state.thumb);
+    }
+
+    /**
+     * 只刷新滚动条所在的区域
+     */
+    private void invalidateScrollBar(RectF oldThumb) {
+        final RectF dirty = mTempRectF;
+        dirty.set(mScrollBarState.thumb);
+        dirty.union(oldThumb);
+        invalidate((int) Math.floor(dirty.left), (int) Math.floor(dirty.top),
+                (int) Math.ceil(dirty.right), (int) Math.ceil(dirty.bottom));
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (mPageContainer != null) {
+            // Pages may have been added or recycled without a layout pass
+            onPagesChanged(mPageContainer.updateWindow(t));
+        }
+        mVisibilityTracker.update(this, t, t + getHeight());
+        updateSections();
+        updateContentWindow(t, oldt);
+        final ScrollBarState state = mScrollBarState;
+        final int oldPage = state.page;
+        mTempRectF.set(state.thumb);
+        updateScrollBarState();
+        if (state.visible && state.page != oldPage) {
+            invalidateScrollBar(mTempRectF);
+        }
+        mPageChangeDispatcher.onPageMayHaveChanged();
+        mPagePrefetcher.onPageMayHaveChanged();
     }
     
     private float getOneCutWidth() {
         return (getHeight() - getPaddingTop() - getPaddingBottom()) * 1.0f / getTotalPage();
     }
 
-    private RectF getProgressRect(float thumbSize) {
+    private void getProgressRect(float thumbSize, int curPage, RectF outRect) {
         float oneCutWidth = getOneCutWidth();
         float left = getWidth()- getPaddingRight() - thumbSize;
         float right = left + thumbSize;
-        float top =  oneCutWidth * (getCurPage() - 1) + getScrollY();
+        float top =  oneCutWidth * (curPage - 1) + getScrollY();
         float bottom = top + (oneCutWidth < M_SCROLL_MIN_HEIGHT ? M_SCROLL_MIN_HEIGHT : oneCutWidth);
-        return new RectF(left, top, right, bottom);
+        outRect.set(left, top, right, bottom);
     }
 
-    private boolean checkStartScroll(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-        boolean startScroll = false;
-        float slope = 0;
-        final float dx = e2.getX() - e1.getX();
-        final float dy = e2.getY() - e1.getY();
-        if (Math.abs(dx) > mPagingTouchSlop) {
-            startScroll = ENABLE_LEFT_RIGHT_SLOP;
-        }
-        if (Math.abs(dy) > mPagingTouchSlop) {
-            startScroll = true;
-        }
-        if (startScroll) {
-            disallowParentAndChildInterceptTouchEvent(true);
-        }
-        if (startScroll) {
-            if (dx != 0) {
-                slope = Math.abs(dy / dx);
-            } else {
-                slope = 2; //һֱdy
-            }
-            if (slope >= 1) {
-                if (dy < 0) {
-                    nextPage();
-                }else {
-                    prePage();
-                }
-            }else {
-                if (ENABLE_LEFT_RIGHT_SLOP) {
-                    if (dx < 0) {
-                        nextPage();
-                    }else {
-                        prePage();
-                    }
-                }
-            }
-        }
-        Log.d(TAG, String.format("startScroll:%b,slope:%s,dy:%s,dx:%s", startScroll, slope, dy, dx));
-        return startScroll;
-    }
-    
     /**
      * <p>
      * Finds the next focusable component that fits in the specified bounds.
@@ -492,71 +933,10 @@ public class PageScrollView extends ScrollView{
      *         be found
      */
     private View findFocusableViewInBounds(boolean topFocus, int top, int bottom) {
-
-        List<View> focusables = getFocusables(View.FOCUS_FORWARD);
-        View focusCandidate = null;
-
-        /*
-         * A fully contained focusable is one where its top is below the bound's
-         * top, and its bottom is above the bound's bottom. A partially
-         * contained focusable is one where some part of it is within the
-         * bounds, but it also has some part that is not within bounds.  A fully contained
-         * focusable is preferred to a partially contained focusable.
-         */
-        boolean foundFullyContainedFocusable = false;
-
-        int count = focusables.size();
-        for (int i = 0; i < count; i++) {
-            View view = focusables.get(i);
-            int viewTop = view.getTop();
-            int viewBottom = view.getBottom();
-
-            if (top < viewBottom && viewTop < bottom) {
-                /*
-                 * the focusable is in the target area, it is a candidate for
-                 * focusing
-                 */
-
-                final boolean viewIsFullyContained = (top < viewTop) &&
-                        (viewBottom < bottom);
-
-                if (focusCandidate == null) {
-                    /* No candidate, take this one */
-                    focusCandidate = view;
-                    foundFullyContainedFocusable = viewIsFullyContained;
-                } else {
-                    final boolean viewIsCloserToBoundary =
-                            (topFocus && viewTop < focusCandidate.getTop()) ||
-                                    (!topFocus && viewBottom > focusCandidate
-                                            .getBottom());
-
-                    if (foundFullyContainedFocusable) {
-                        if (viewIsFullyContained && viewIsCloserToBoundary) {
-                            /*
-                             * We're dealing with only fully contained views, so
-                             * it has to be closer to the boundary to beat our
-                             * candidate
-                             */
-                            focusCandidate = view;
-                        }
-                    } else {
-                        if (viewIsFullyContained) {
-                            /* Any fully contained view beats a partially contained view */
-                            focusCandidate = view;
-                            foundFullyContainedFocusable = true;
-                        } else if (viewIsCloserToBoundary) {
-                            /*
-                             * Partially contained view beats another partially
-                             * contained view if it's closer
-                             */
-                            focusCandidate = view;
-                        }
-                    }
-                }
-            }
+        if (!mFocusIndex.isValid()) {
+            mFocusIndex.build(this, mTempRect);
         }
-
-        return focusCandidate;
+        return mFocusIndex.findInBounds(topFocus, top, bottom);
     }
     
     /**
@@ -606,85 +986,812 @@ public class PageScrollView extends ScrollView{
             if (isSmoothScrollingEnabled()) {
                 smoothScrollBy(0, delta);
             } else {
+                final int oldScrollY = getScrollY();
                 scrollBy(0, delta);
+                startPageTransition(getScrollY() - oldScrollY);
             }
         }
     }
     
+    /**
+     * Turns to the previous page on the next frame, see {@link #nextPage()}.
+     */
     public boolean prePage() {
-        if (canScroll()) {
-            Log.d(TAG, String.format("prePage cur:%d,total:%d", getCurPage(), getTotalPage()));
-            return pageScroll(View.FOCUS_UP);
-        }else {
-            Log.d(TAG, "can not scroll");
+        return queuePageTurn(-1, System.nanoTime());
+    }
+
+    /**
+     * Turns to the next page on the next frame. Turns requested within one
+     * frame, e.g. by calling this in a loop, are merged into a single
+     * {@link #moveToPage(int)} to the final page, so {@link #getCurPage()}
+     * only changes once that frame runs.
+     *
+     * @return true if the turn was queued, false on the last page or if the content can not scroll
+     */
+    public boolean nextPage() {
+        return queuePageTurn(1, System.nanoTime());
+    }
+
+    private boolean queuePageTurn(int pages, long inputNanos) {
+        if (!canScroll() || !mTurnQueue.add(pages, inputNanos, getCurPage(), getTotalPage())) {
+            // can not scroll
             return false;
         }
+        mPagePrefetcher.setDirection(pages);
+        if (!mTurnScheduled) {
+            mTurnScheduled = true;
+            // Input is handled before the animation callbacks of a frame, so touch
+            // and key turns still land in the frame they arrived in
+            ViewCompat.postOnAnimation(this, mFlushPageTurns);
+        }
+        return true;
     }
 
-    public boolean nextPage() {
-        if (canScroll()) {
-            Log.d(TAG, String.format("nextPage cur:%d,total:%d", getCurPage(), getTotalPage()));
-            return pageScroll(View.FOCUS_DOWN);
+    private void flushPageTurns() {
+        if (mTurnQueue.isEmpty()) {
+            return;
+        }
+        final int target = mTurnQueue.getTarget(getCurPage(), getTotalPage());
+        mTurnInputNanos = mTurnQueue.getInputNanos();
+        mTurnQueue.clear();
+        moveToPage(target);
+        mTurnInputNanos = 0;
+    }
+
+    public boolean isVolumeKeyPagingEnabled() {
+        return mVolumeKeyPaging;
+    }
+
+    /**
+     * @param enabled turn pages with the volume keys, volume down goes to the next page
+     */
+    public void setVolumeKeyPagingEnabled(boolean enabled) {
+        mVolumeKeyPaging = enabled;
+    }
+
+    @Override
+    public boolean executeKeyEvent(KeyEvent event) {
+        final int pages = getKeyPages(event);
+        // Content that fits on one page leaves the keys to the default handling
+        if (pages == 0 || !canScroll()) {
+            return super.executeKeyEvent(event);
+        }
+        if (event.getAction() == KeyEvent.ACTION_DOWN) {
+            // Held keys turn faster the longer they are held
+            final int repeatPages = PageTurnQueue.getRepeatPages(event.getRepeatCount());
+            queuePageTurn(pages * repeatPages, event.getEventTime() * 1000000L);
+        }
+        return true;
+    }
+
+    /**
+     * @return 1 for a key that turns to the next page, -1 for the previous page, 0 for other keys
+     */
+    @SuppressLint("InlinedApi")
+    private int getKeyPages(KeyEvent event) {
+        switch (event.getKeyCode()) {
+        case KeyEvent.KEYCODE_PAGE_DOWN:
+        case KeyEvent.KEYCODE_CHANNEL_DOWN:
+            return 1;
+        case KeyEvent.KEYCODE_PAGE_UP:
+        case KeyEvent.KEYCODE_CHANNEL_UP:
+            return -1;
+        case KeyEvent.KEYCODE_SPACE:
+            return event.isShiftPressed() ? -1 : 1;
+        case KeyEvent.KEYCODE_VOLUME_DOWN:
+            return mVolumeKeyPaging ? 1 : 0;
+        case KeyEvent.KEYCODE_VOLUME_UP:
+            return mVolumeKeyPaging ? -1 : 0;
+        default:
+            return 0;
+        }
+    }
+
+    public boolean moveToPage(int page) {
+        if (canScroll() && page >= 1 && page <= getTotalPage()) {
+            final int curPage = getCurPage();
+            if (page == curPage)
+                return false;
+            boolean down = page > curPage;
+            mTempRect.top = PageMath.getMoveToPageTarget(mPageBreaks.getBreaks(), page, getHeight(), getMaxScrollY());
+            mTempRect.bottom = mTempRect.top + getHeight();
+            mTrace.beginSection("PageScrollView#moveToPage");
+            try {
+                mTrace.record(PageTrace.PHASE_SCROLL, getCurPage(), page);
+                final Bitmap snapshot = mSnapshotCache != null ? mSnapshotCache.get(page) : null;
+                final int oldScrollY = getScrollY();
+                final boolean handled = scrollAndFocus(down ? View.FOCUS_DOWN : View.FOCUS_UP, mTempRect.top, mTempRect.bottom);
+                showSnapshot(snapshot, page);
+                if (getScrollY() != oldScrollY) {
+                    onPageTurned();
+                }
+                return handled;
+            } finally {
+                mTrace.endSection();
+            }
         }else {
-            Log.d(TAG, "can not scroll");
+            // can not scroll
             return false;
         }
     }
     
-    public boolean moveToPage(int page) {
-        if (canScroll() && page <= getTotalPage()) {
-            if (page == getCurPage())
-                return false;
-            boolean down = page > getCurPage();
-            int height = getHeight() * (page - getCurPage());
-            if (down) {
-                mTempRect.top = getScrollY() + height;
-                int count = getChildCount();
-                if (count > 0) {
-                    View view = getChildAt(count - 1);
-                    if (mTempRect.top + height > view.getBottom()) {
-                        mTempRect.top = view.getBottom() - height;
+    /**
+     * Pages the content supplied by an adapter instead of a single inflated child.
+     * Only the current page and {@link #getOffscreenPageLimit()} pages on each side
+     * are created. Any existing child is replaced, pass null to remove the adapter and its pages.
+     */
+    public void setAdapter(PageAdapter adapter) {
+        removeAllViews();
+        mPageContainer = null;
+        if (adapter != null) {
+            mPageContainer = new VirtualPageContainer(getContext(), adapter, mOffscreenPageLimit);
+            addView(mPageContainer, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        }
+        scrollTo(0, 0);
+    }
+
+    public PageAdapter getAdapter() {
+        return mPageContainer != null ? mPageContainer.getAdapter() : null;
+    }
+
+    public int getOffscreenPageLimit() {
+        return mOffscreenPageLimit;
+    }
+
+    /**
+     * @param limit how many pages to keep created on each side of the current page,
+     *            also how close to it {@link PageSection}s are inflated
+     */
+    public void setOffscreenPageLimit(int limit) {
+        mOffscreenPageLimit = Math.max(0, limit);
+        if (mPageContainer != null) {
+            mPageContainer.setOffscreenPageLimit(mOffscreenPageLimit);
+        }
+        updateSections();
+    }
+
+    /**
+     * Enables pre-rendering of the pages next to the current one, so a page turn
+     * can show a cached bitmap at once and swap in the live views on the next frame.
+     *
+     * @param maxBytes memory the cached pages may use, 0 disables the cache
+     */
+    public void setPageSnapshotCacheSize(int maxBytes) {
+        if (mSnapshotCache != null) {
+            mSnapshotCache.invalidate();
+            mSnapshotCache = null;
+        }
+        // The placeholder is kept, it is released on its own once the content is laid out
+        mSnapshot = null;
+        if (maxBytes > 0) {
+            mSnapshotCache = new PageSnapshotCache(maxBytes);
+            mSnapshotCache.setResources(PageResources.get(getContext()), this);
+            warmUpSnapshots();
+        }
+    }
+
+    /**
+     * @return the snapshot cache, use it to read the hit rate; null when disabled
+     */
+    public PageSnapshotCache getPageSnapshotCache() {
+        return mSnapshotCache;
+    }
+
+    /**
+     * Keeps the page breaks of the content in store, so the next time the same
+     * content is shown at the same size it is paged at once from the stored
+     * table instead of measuring all of it. The stored table is checked
+     * against the real content when the UI thread is idle and replaced if it
+     * went stale. The tables are read in the background, the content is paged
+     * as usual until they arrive.
+     *
+     * @param store where the tables live, null disables persisting
+     * @param fingerprint identifies the content, e.g. {@link PageBreakStore#fingerprint(CharSequence)}
+     */
+    public void setPageBreakStore(final PageBreakStore store, long fingerprint) {
+        Looper.myQueue().removeIdleHandler(mValidateBreaks);
+        mBreakStore = store;
+        mContentFingerprint = fingerprint;
+        mBreaksRestored = false;
+        mStoredBreaks.clear();
+        mStoredWidth = 0;
+        mLoadedBreaks = null;
+        if (store != null) {
+            store.loadAll(fingerprint, new PageBreakStore.OnLoadListener() {
+                @Override
+                public void onPageBreaksLoaded(long loaded, ArrayList<PageBreakStore.Table> tables) {
+                    if (store != mBreakStore || loaded != mContentFingerprint) {
+                        return;
+                    }
+                    mLoadedBreaks = tables;
+                    if (getMeasuredWidth() > 0) {
+                        // Already paged from the content, look the size up now
+                        invalidatePageBreaks(0);
                     }
                 }
+            });
+        }
+        invalidatePageBreaks(0);
+    }
+
+    /**
+     * Shows a snapshot of the page the content was last left at as the first
+     * frame, so opening a long document draws at once. The content is measured
+     * on the next frame, and the snapshot is swapped for the live views once
+     * they are laid out at that page. A snapshot of the current page is saved
+     * whenever the window is hidden. Call it before the view is laid out, e.g.
+     * in onCreate; a restored instance state at another page or a different
+     * view size skips the snapshot.
+     *
+     * @param store where the snapshots live, null disables them
+     * @param fingerprint identifies the content, e.g. {@link PageBreakStore#fingerprint(CharSequence)}
+     */
+    public void setPlaceholderStore(PagePlaceholderStore store, long fingerprint) {
+        mPlaceholderStore = store;
+        mPlaceholderFingerprint = fingerprint;
+        if (store == null || getMeasuredWidth() != 0 || mPendingPage > 0) {
+            return;
+        }
+        final PagePlaceholderStore.Placeholder placeholder = store.load(fingerprint);
+        if (placeholder != null) {
+            mPlaceholder = placeholder.bitmap;
+            mShowingPlaceholder = true;
+            mPendingPage = placeholder.page;
+        }
+    }
+
+    private void releasePlaceholder() {
+        mShowingPlaceholder = false;
+        mMeasureDeferred = false;
+        removeCallbacks(mMeasureContent);
+        removeCallbacks(mReleaseSnapshot);
+        mSnapshot = null;
+        mPlaceholder = null;
+        invalidate();
+    }
+
+    /**
+     * Draws the current page into a bitmap, it is compressed and written in the background.
+     */
+    private void savePlaceholder() {
+        final View child = getChildAt(0);
+        if (child == null || getWidth() <= 0 || getHeight() <= 0 || !canScroll()) {
+            return;
+        }
+        final int page = getCurPage();
+        final Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.RGB_565);
+        } catch (OutOfMemoryError e) {
+            return;
+        }
+        final Canvas canvas = new Canvas(bitmap);
+        final Drawable background = getBackground() != null ? getBackground() : getRootView().getBackground();
+        if (background != null) {
+            background.draw(canvas);
+        } else {
+            canvas.drawColor(Color.WHITE);
+        }
+        // Where restoring the page will scroll to, not where a drag may have left it
+        final int top = Math.min(getPageTop(page), getMaxScrollY());
+        canvas.translate(child.getLeft() - getScrollX(), child.getTop() - top);
+        child.draw(canvas);
+        mPlaceholderStore.save(mPlaceholderFingerprint, page, bitmap);
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility != VISIBLE && mPlaceholderStore != null && !mShowingPlaceholder && mPendingPage <= 0) {
+            savePlaceholder();
+        }
+    }
+
+    /**
+     * @return the content is fully laid out, its page breaks are final
+     */
+    private static boolean isContentSettled(View child) {
+        return !(child instanceof PagedTextView) || ((PagedTextView) child).isPaginationComplete();
+    }
+
+    /**
+     * Builds the page breaks, or takes them from the store the first time the
+     * content is measured at this size. Content whose candidates are only
+     * known after it is laid out is left to onLayout.
+     *
+     * @return true if the breaks were built from the content
+     */
+    private boolean buildPageBreaks(View child, int changedOffset) {
+        final int width = getMeasuredWidth();
+        final int pageHeight = getMeasuredHeight();
+        if (mBreakStore != null && mLoadedBreaks != null && width > 0 && pageHeight > 0
+                && (width != mStoredWidth || pageHeight != mStoredBreaks.getPageHeight())) {
+            mStoredWidth = width;
+            mBreaksRestored = findStoredBreaks(width, pageHeight);
+            if (mBreaksRestored) {
+                mPageBreaks.getBreaks().copyFrom(mStoredBreaks);
+                Looper.myQueue().addIdleHandler(mValidateBreaks);
             } else {
-                mTempRect.top = getScrollY() - height;
-                if (mTempRect.top < 0) {
-                    mTempRect.top = 0;
+                // Remember the size was looked up, the table is saved once the content is settled
+                mStoredBreaks.build(0, pageHeight);
+            }
+        }
+        if (mBreaksRestored || (child != null && PageBreakIndex.needsLayout(child))) {
+            return false;
+        }
+        mPageBreaks.build(child, mContentHeight, pageHeight, changedOffset);
+        return true;
+    }
+
+    /**
+     * Copies the loaded table of the size into mStoredBreaks.
+     *
+     * @return true if there is one
+     */
+    private boolean findStoredBreaks(int width, int pageHeight) {
+        for (int i = 0; i < mLoadedBreaks.size(); i++) {
+            final PageBreakStore.Table table = mLoadedBreaks.get(i);
+            if (table.width == width && table.breaks.getPageHeight() == pageHeight) {
+                mStoredBreaks.copyFrom(table.breaks);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void storePageBreaks(View child) {
+        final PageBreaks breaks = mPageBreaks.getBreaks();
+        // Until the stored tables are loaded it is not known whether this one is new
+        if (mBreakStore != null && mLoadedBreaks != null && child != null && isContentSettled(child)
+                && !breaks.isEmpty() && !breaks.sameBreaks(mStoredBreaks)) {
+            mStoredBreaks.copyFrom(breaks);
+            mBreakStore.save(mContentFingerprint, mStoredWidth, breaks);
+            // Replaces the loaded table of the size, so the next lookup finds this one
+            for (int i = mLoadedBreaks.size() - 1; i >= 0; i--) {
+                final PageBreakStore.Table table = mLoadedBreaks.get(i);
+                if (table.width == mStoredWidth && table.breaks.getPageHeight() == breaks.getPageHeight()) {
+                    mLoadedBreaks.remove(i);
                 }
             }
-            mTempRect.bottom = mTempRect.top + height;
-            Log.d(TAG, String.format("nextPage cur:%d,total:%d", getCurPage(), getTotalPage()));
-            return scrollAndFocus(down ? View.FOCUS_DOWN : View.FOCUS_UP, mTempRect.top, mTempRect.bottom);
-        }else {
-            Log.d(TAG, "can not scroll");
+            final PageBreaks copy = new PageBreaks();
+            copy.copyFrom(breaks);
+            mLoadedBreaks.add(new PageBreakStore.Table(mStoredWidth, copy));
+        }
+    }
+
+    /**
+     * Rebuilds the breaks from the content once it is settled and compares them with the stored ones.
+     *
+     * @return true when done, false to try again on the next idle
+     */
+    private boolean validateRestoredBreaks() {
+        if (!mBreaksRestored) {
+            return true;
+        }
+        final View child = getChildAt(0);
+        if (child != null && !isContentSettled(child)) {
             return false;
         }
+        mBreaksRestored = false;
+        mPageBreaks.build(child, mContentHeight, getMeasuredHeight(), 0);
+        if (!mPageBreaks.getBreaks().sameBreaks(mStoredBreaks)) {
+            // The content changed since the table was stored
+            storePageBreaks(child);
+            mPageBreaksChanged = true;
+            requestLayout();
+        }
+        return true;
     }
-    
+
+    /**
+     * Scrolls to the page restored from the saved state once there are enough pages.
+     */
+    private void restorePendingPage(View child) {
+        if (mPendingPage <= 0 || mPageBreaks.isEmpty()) {
+            return;
+        }
+        final int total = mPageBreaks.getPageCount();
+        if (mPendingPage > total && child != null && !isContentSettled(child)) {
+            // More pages are on their way
+            return;
+        }
+        final int page = Math.min(mPendingPage, total);
+        mPendingPage = 0;
+        final int scrollY = Math.min(mPageBreaks.getPageStart(page), getMaxScrollY());
+        if (scrollY != getScrollY()) {
+            scrollTo(getScrollX(), scrollY);
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        if (mPendingPage > 0) {
+            ss.page = mPendingPage;
+        } else if (getHeight() <= 0 && mPageBreaks.isEmpty()) {
+            // Not laid out yet, e.g. GONE, there is no page to restore
+            ss.page = 0;
+        } else {
+            ss.page = getCurPage();
+        }
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        if (ss.page <= 0) {
+            return;
+        }
+        if (mShowingPlaceholder && ss.page != mPendingPage) {
+            releasePlaceholder();
+        }
+        mPendingPage = ss.page;
+        requestLayout();
+    }
+
+    private void warmUpSnapshots() {
+        final View child = getChildAt(0);
+        if (mSnapshotCache == null || child == null || !canScroll()) {
+            return;
+        }
+        final int curPage = getCurPage();
+        final int pageHeight = getHeight();
+        if (curPage < getTotalPage()) {
+            mSnapshotCache.warmUp(child, curPage + 1, getPageTop(curPage + 1), getWidth(), pageHeight);
+        }
+        if (curPage > 1) {
+            mSnapshotCache.warmUp(child, curPage - 1, getPageTop(curPage - 1), getWidth(), pageHeight);
+        }
+    }
+
+    private void showSnapshot(Bitmap snapshot, int page) {
+        // Only usable when the turn landed exactly where the page was recorded
+        final boolean usable = snapshot != null && getScrollY() == getPageTop(page);
+        if (mSnapshotCache != null) {
+            mSnapshotCache.countTurn(usable);
+        }
+        if (usable) {
+            mSnapshot = snapshot;
+            invalidate();
+            removeCallbacks(mReleaseSnapshot);
+            post(mReleaseSnapshot);
+        } else {
+            warmUpSnapshots();
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mMaxTextureHeight == 0) {
+            checkMaxTextureHeight(canvas);
+        }
+        if (mMetrics == null) {
+            super.draw(canvas);
+            return;
+        }
+        final long start = System.nanoTime();
+        super.draw(canvas);
+        mMetrics.onDraw(System.nanoTime() - start);
+    }
+
+    @SuppressLint("NewApi")
+    private void checkMaxTextureHeight(Canvas canvas) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH || !canvas.isHardwareAccelerated()) {
+            return;
+        }
+        mMaxTextureHeight = canvas.getMaximumBitmapHeight();
+        if (mTransition != null) {
+            mTransition.setMaxLayerHeight(mMaxTextureHeight);
+        }
+        checkContentLayer(getChildAt(0));
+    }
+
+    /**
+     * A hardware layer taller than the maximum texture size can not be
+     * created, the content would not be drawn at all. Such content is drawn
+     * straight from its display list instead, where only the page window is
+     * rendered.
+     */
+    @SuppressLint("NewApi")
+    private void checkContentLayer(View child) {
+        if (mMaxTextureHeight > 0 && child != null && child.getMeasuredHeight() > mMaxTextureHeight
+                && child.getLayerType() == LAYER_TYPE_HARDWARE) {
+            Log.w(TAG, "Content of " + child.getMeasuredHeight() + "px exceeds the maximum texture size "
+                    + mMaxTextureHeight + ", dropping its hardware layer");
+            child.setLayerType(LAYER_TYPE_NONE, null);
+        }
+    }
+
+    /**
+     * Only the page window of the content can be seen. Clipping to it, also
+     * without padding, lets the software renderer skip every subtree outside
+     * of it and keeps the hardware renderer from rasterizing it.
+     */
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        final int scrollY = getScrollY();
+        final int saveCount = canvas.save();
+        canvas.clipRect(getScrollX(), scrollY, getScrollX() + getWidth(), scrollY + getHeight());
+        final boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return more;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mSnapshot != null) {
+            canvas.drawBitmap(mSnapshot, getScrollX(), getScrollY(), null);
+        } else if (mPlaceholder != null) {
+            canvas.drawBitmap(mPlaceholder, getScrollX(), getScrollY(), null);
+        } else {
+            super.dispatchDraw(canvas);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        PageResources.get(getContext()).register(mMemoryClient);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        PageResources.get(getContext()).unregister(mMemoryClient);
+        removeCallbacks(mReleaseSnapshot);
+        mSnapshot = null;
+        mPlaceholder = null;
+        if (mShowingPlaceholder) {
+            releasePlaceholder();
+        }
+        if (mMetrics != null) {
+            mMetrics.cancel();
+        }
+        mPageChangeDispatcher.cancel();
+        mPagePrefetcher.cancel();
+        removeCallbacks(mFlushPageTurns);
+        mTurnScheduled = false;
+        mTurnQueue.clear();
+        if (mBreaksRestored) {
+            Looper.myQueue().removeIdleHandler(mValidateBreaks);
+            mBreaksRestored = false;
+            // Restored and validated again on the next measure instead
+            mStoredBreaks.clear();
+            mChangedOffset = 0;
+        }
+        if (mTransition != null) {
+            mTransition.cancel();
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        super.requestLayout();
+        if (mSnapshotCache != null) {
+            mSnapshotCache.invalidate();
+        }
+    }
+
+    /**
+     * Tells the view that only the content at or below offset changed, e.g.
+     * after appending to a feed, so the pages above it are kept and only the
+     * rest is re-paginated. Without it any change of the content re-paginates
+     * all of it.
+     *
+     * @param offset the top of the changed content in scroll coordinates
+     */
+    public void invalidatePageBreaks(int offset) {
+        mChangedOffset = Math.min(mChangedOffset, Math.max(0, offset));
+        requestLayout();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mShowingPlaceholder && (mMeasureDeferred || getMeasuredWidth() == 0)) {
+            final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+            final int height = getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec);
+            if (mPlaceholder != null && width == mPlaceholder.getWidth() && height == mPlaceholder.getHeight()) {
+                // Only the placeholder is drawn in the first frame, the content is measured in the next one
+                setMeasuredDimension(width, height);
+                if (!mMeasureDeferred) {
+                    mMeasureDeferred = true;
+                    post(mMeasureContent);
+                }
+                return;
+            }
+            releasePlaceholder();
+        }
+        if (mPageContainer != null && MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            mPageContainer.setPageHeight(MeasureSpec.getSize(heightMeasureSpec));
+        }
+        final View child = getChildAt(0);
+        // Whether the content changed can only be told before it is measured again
+        int changedOffset = mChangedOffset;
+        if (child instanceof PagedTextView) {
+            changedOffset = Math.min(changedOffset, ((PagedTextView) child).consumeChangedOffset());
+        } else if (changedOffset == Integer.MAX_VALUE && child != null && child.isLayoutRequested()) {
+            changedOffset = 0;
+        }
+        mChangedOffset = Integer.MAX_VALUE;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        measurePageBreaks(child, changedOffset);
+    }
+
+    /**
+     * Paginates the measured content and rounds it up to whole pages, so it
+     * is laid out once at its final height.
+     */
+    private void measurePageBreaks(View child, int changedOffset) {
+        final boolean visible = child != null && child.getVisibility() != GONE;
+        final int contentHeight = visible ? child.getMeasuredHeight() : 0;
+        if (getMeasuredWidth() != mBreaksWidth || getMeasuredHeight() != mPageBreaks.getPageHeight()
+                || (contentHeight != mContentHeight && changedOffset == Integer.MAX_VALUE)) {
+            changedOffset = 0;
+        }
+        boolean built = false;
+        if (changedOffset != Integer.MAX_VALUE) {
+            mBreaksWidth = getMeasuredWidth();
+            mContentHeight = contentHeight;
+            built = buildPageBreaks(child, changedOffset);
+            mPageBreaksChanged = true;
+        }
+        // Content paged after its layout is stretched to the pages of the last pass, onLayout corrects it
+        if (mFixLastPageHeight && visible && mPageBreaks.getPagedHeight() > contentHeight) {
+            child.measure(MeasureSpec.makeMeasureSpec(child.getMeasuredWidth(), MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mPageBreaks.getPagedHeight(), MeasureSpec.EXACTLY));
+            if (built) {
+                // Weights and gravity may have moved the children, take the candidates from the final measure
+                mPageBreaks.build(child, mContentHeight, getMeasuredHeight(), changedOffset);
+            }
+        }
+        if (built) {
+            storePageBreaks(child);
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        if (mMeasureDeferred) {
+            return;
+        }
+        final View child = getChildAt(0);
+        // Descendants can only have moved if the content is laid out again
+        final boolean contentLaidOut = changed || child == null || child.isLayoutRequested();
         super.onLayout(changed, left, top, right, bottom);
-        if (mFixLastPageHeight) {
-            final View child = getChildAt(0);
-            if (child.getVisibility() != GONE) {
-                final int height = child.getMeasuredHeight();
-                int child_left = child.getLeft();
-                int child_right = child.getRight();
-                int child_top = child.getTop();
-                int total = getPage(height, getMeasuredHeight());
-                child.layout(child_left, child_top, child_right, child_top + getMeasuredHeight() * total);
+        if (mPageContainer != null) {
+            onPagesChanged(mPageContainer.updateWindow(getScrollY()));
+        }
+        // Otherwise the size and the pages are the same, the focus index and the scroll bar are still right
+        if (changed || mPageBreaksChanged) {
+            mPageBreaksChanged = false;
+            if (child != null && !mBreaksRestored && PageBreakIndex.needsLayout(child)) {
+                // The candidates of this container are the tops of its children, only known now
+                mPageBreaks.build(child, mContentHeight, getMeasuredHeight(), 0);
+                final int pagedHeight = Math.max(mContentHeight, mPageBreaks.getPagedHeight());
+                if (mFixLastPageHeight && child.getVisibility() != GONE && child.getHeight() != pagedHeight) {
+                    // Only when the pages differ from the last pass, the content was measured for those
+                    int child_left = child.getLeft();
+                    int child_right = child.getRight();
+                    int child_top = child.getTop();
+                    child.measure(MeasureSpec.makeMeasureSpec(child.getWidth(), MeasureSpec.EXACTLY),
+                            MeasureSpec.makeMeasureSpec(pagedHeight, MeasureSpec.EXACTLY));
+                    child.layout(child_left, child_top, child_right, child_top + pagedHeight);
+                    mPageBreaks.build(child, mContentHeight, getMeasuredHeight(), 0);
+                }
+                storePageBreaks(child);
             }
+            mFocusIndex.invalidate();
+            updateScrollBarState();
+            mPageChangeDispatcher.onPageMayHaveChanged();
+            mPagePrefetcher.onPageMayHaveChanged();
+        }
+        final int sectionDelta = mSectionLoader.consumeScrollDelta();
+        if (sectionDelta != 0) {
+            // Sections above the page being read were inflated, stay on the page its top moved to
+            final int scrollY = Math.min(getPageTop(getPageAt(getScrollY() + sectionDelta)), getMaxScrollY());
+            scrollTo(getScrollX(), Math.max(0, scrollY));
         }
+        restorePendingPage(child);
+        if (mShowingPlaceholder && (mPendingPage <= 0
+                || mPageBreaks.isEmpty() && (child == null || isContentSettled(child)))) {
+            // The live views are at the page now, they replace the placeholder in the next frame
+            mShowingPlaceholder = false;
+            removeCallbacks(mReleaseSnapshot);
+            post(mReleaseSnapshot);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            checkContentLayer(child);
+        }
+        if (contentLaidOut) {
+            // Descendants may have moved even when this view did not
+            mVisibilityTracker.invalidate();
+            mSectionLoader.invalidate();
+        }
+        mVisibilityTracker.update(this, getScrollY(), getScrollY() + getHeight());
+        updateSections();
+        updateContentWindow(getScrollY(), getScrollY());
     }
-    
-    
+
+    /**
+     * Updates what was collected from the content after the page container
+     * added or recycled pages. Recycling only drops entries, added pages are
+     * looked for on the next update.
+     *
+     * @param changes what {@link VirtualPageContainer#updateWindow(int)} returned
+     */
+    private void onPagesChanged(int changes) {
+        if (changes == 0) {
+            return;
+        }
+        mFocusIndex.invalidate();
+        if ((changes & VirtualPageContainer.PAGES_ADDED) != 0) {
+            mVisibilityTracker.invalidate();
+            mSectionLoader.invalidate();
+        } else {
+            mVisibilityTracker.onViewsRemoved(this);
+            mSectionLoader.onViewsRemoved();
+        }
+    }
+
+    /**
+     * Tells PagedTextView content which part of it is shown, so its display
+     * list only records the sections there. A page on each side is included
+     * for the snapshot warm-up, and the range scrolled over for the page a
+     * transition slides in from.
+     */
+    private void updateContentWindow(int scrollY, int oldScrollY) {
+        final View child = getChildAt(0);
+        if (child instanceof PagedTextView) {
+            final int height = getHeight();
+            ((PagedTextView) child).setPageWindow(Math.min(scrollY, oldScrollY) - height - child.getTop(),
+                    Math.max(scrollY, oldScrollY) + 2 * height - child.getTop());
+        }
+    }
+
+    /**
+     * Starts inflating the page sections within the offscreen page limit of the page window.
+     */
+    private void updateSections() {
+        final int height = getHeight();
+        if (height <= 0) {
+            return;
+        }
+        final int scrollY = getScrollY();
+        mSectionLoader.update(scrollY - mOffscreenPageLimit * height, scrollY + (mOffscreenPageLimit + 1) * height);
+    }
+
+    /**
+     * Drops invalidations entirely outside the page window, e.g. from an
+     * animation on another page, so they do not redraw the visible page. The
+     * invalidated views are still redrawn once a scroll brings them in.
+     */
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        final int scrollY = getScrollY();
+        // location holds the left and top of the child the dirty rect is relative to
+        if (!dirty.isEmpty() && (dirty.bottom + location[1] <= scrollY
+                || dirty.top + location[1] >= scrollY + getHeight())) {
+            return null;
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+
     public boolean isFixLastPageHeight() {
         return mFixLastPageHeight;
     }
 
     public void setFixLastPageHeight(boolean fixLastPageHeight) {
-        this.mFixLastPageHeight = fixLastPageHeight;
-        requestLayout();
+        if (mFixLastPageHeight != fixLastPageHeight) {
+            this.mFixLastPageHeight = fixLastPageHeight;
+            requestLayout();
+        }
     }
 
     public int getTotalHeight() {
@@ -696,15 +1803,47 @@ public class PageScrollView extends ScrollView{
     }
     
     public int getTotalPage() {
+        if (!mPageBreaks.isEmpty()) {
+            return mPageBreaks.getPageCount();
+        }
         return getPage(getTotalHeight(), getHeight());
     }
     
     public int getCurPage() {
+        if (!mPageBreaks.isEmpty()) {
+            final int scrollY = getScrollY();
+            return scrollY >= getMaxScrollY() ? mPageBreaks.getPageCount() : mPageBreaks.findPage(scrollY);
+        }
         return getPage(getScrollY() + getHeight(), getHeight());
     }
+
+    /**
+     * @return the scroll offset page starts at
+     */
+    int getPageTop(int page) {
+        if (!mPageBreaks.isEmpty()) {
+            return mPageBreaks.getPageStart(page);
+        }
+        return (page - 1) * getHeight();
+    }
+
+    /**
+     * @return the page the scroll offset falls on
+     */
+    int getPageAt(int offset) {
+        if (!mPageBreaks.isEmpty()) {
+            return mPageBreaks.findPage(offset);
+        }
+        final int height = getHeight();
+        return height > 0 ? Math.max(0, offset) / height + 1 : 1;
+    }
+
+    private int getMaxScrollY() {
+        return Math.max(0, getTotalHeight() - (getHeight() - getPaddingBottom() - getPaddingTop()));
+    }
     
     private final int getPage(int height, int pageHeight) {
-        return height % pageHeight > 0 ? height / pageHeight + 1 : height / pageHeight;
+        return PageMath.getPage(height, pageHeight);
     }
    
     
@@ -714,13 +1853,22 @@ public class PageScrollView extends ScrollView{
      * @param child the View to scroll to
      */
     public void scrollToChild(View child) {
-        Rect tempRect = new Rect();
+        final Rect tempRect = mTempRect;
         child.getDrawingRect(tempRect);
         // Offset from child's local coordinates to ScrollView coordinates 
         offsetDescendantRectToMyCoords(child, tempRect);
-        int scrollDelta = computeScrollDeltaToGetChildRectOnScreen(tempRect);
-        if (scrollDelta != 0) {
-            scrollBy(0, scrollDelta);
+        if (mPageBreaks.isEmpty()) {
+            int scrollDelta = computeScrollDeltaToGetChildRectOnScreen(tempRect);
+            if (scrollDelta != 0) {
+                scrollBy(0, scrollDelta);
+            }
+            return;
+        }
+        // Land on the start of the page holding the child's top
+        final int page = mPageBreaks.findPage(tempRect.top);
+        final int scrollY = Math.min(mPageBreaks.getPageStart(page), getMaxScrollY());
+        if (scrollY != getScrollY()) {
+            scrollTo(getScrollX(), scrollY);
         }
     }
 
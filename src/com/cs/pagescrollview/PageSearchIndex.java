@@ -0,0 +1,339 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.cs.pagescrollview.core.TextSearchIndex;
+
+/**
+ * Find in document for the content of a {@link PageScrollView}. Every
+ * TextView and {@link PagedTextView} under the content is a segment with its
+ * own {@link TextSearchIndex}, built on a background thread. Updating only
+ * re-indexes the segments whose text changed. Search runs in the background
+ * too and streams its hits in document order, each mapped to its page through
+ * the current pagination when it is delivered. Must be used on the UI thread.
+ */
+public class PageSearchIndex {
+    private final PageScrollView mView;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final SerialExecutor mExecutor;
+    private final Rect mTempRect = new Rect();
+    /**
+     * Segments in document order as seen by the UI thread
+     */
+    private final ArrayList<Segment> mSegments = new ArrayList<Segment>();
+    private final SparseArray<Segment> mSegmentsById = new SparseArray<Segment>();
+    /**
+     * Indexes of the segments, only touched on the serial worker
+     */
+    private final SparseArray<TextSearchIndex> mIndexes = new SparseArray<TextSearchIndex>();
+    private int mNextId = 1;
+    /**
+     * Read by the worker to stop a search that was replaced or cancelled
+     */
+    private volatile int mSearchGeneration;
+    private int mPendingUpdates;
+    private int mDelivered;
+
+    private static final class Segment {
+        final int id;
+        final View view;
+        final CharSequence text;
+
+        Segment(int id, View view, CharSequence text) {
+            this.id = id;
+            this.view = view;
+            this.text = text;
+        }
+    }
+
+    public static final class SearchHit {
+        private final View mView;
+        private final int mStart;
+        private final int mEnd;
+        private final int mPage;
+
+        SearchHit(View view, int start, int end, int page) {
+            mView = view;
+            mStart = start;
+            mEnd = end;
+            mPage = page;
+        }
+
+        /**
+         * @return the text view holding the hit
+         */
+        public View getView() {
+            return mView;
+        }
+
+        public int getStart() {
+            return mStart;
+        }
+
+        public int getEnd() {
+            return mEnd;
+        }
+
+        /**
+         * @return the 1-based page, 0 if the text is not laid out yet
+         */
+        public int getPage() {
+            return mPage;
+        }
+    }
+
+    public interface OnSearchResultListener {
+        void onSearchResult(SearchHit hit);
+
+        /**
+         * @param count the number of hits delivered
+         */
+        void onSearchComplete(int count);
+    }
+
+    public PageSearchIndex(PageScrollView view) {
+        mView = view;
+        mExecutor = new SerialExecutor(PageResources.get(view.getContext()).executorFor(view));
+    }
+
+    /**
+     * @return true while changed segments are still being indexed
+     */
+    public boolean isIndexing() {
+        return mPendingUpdates > 0;
+    }
+
+    /**
+     * Collects the text under the content and re-indexes the segments whose
+     * text changed, the rest keep their index. Cheap when nothing changed.
+     */
+    public void update() {
+        final ArrayList<Segment> segments = new ArrayList<Segment>();
+        collect(mView.getChildAt(0), segments);
+        final HashMap<View, Segment> oldSegments = new HashMap<View, Segment>();
+        for (int i = 0; i < mSegments.size(); i++) {
+            oldSegments.put(mSegments.get(i).view, mSegments.get(i));
+        }
+        final SparseArray<String> changed = new SparseArray<String>();
+        boolean same = segments.size() == mSegments.size();
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            final Segment old = oldSegments.get(segment.view);
+            if (old != null && old.text == segment.text) {
+                // TextViews keep their text object until it is set again
+                segments.set(i, old);
+                same = same && old == mSegments.get(i);
+            } else {
+                final Segment fresh = new Segment(mNextId++, segment.view, segment.text);
+                segments.set(i, fresh);
+                changed.put(fresh.id, segment.text.toString());
+                same = false;
+            }
+        }
+        if (changed.size() == 0 && same) {
+            return;
+        }
+        mSegments.clear();
+        mSegments.addAll(segments);
+        mSegmentsById.clear();
+        final int[] ids = new int[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            ids[i] = segments.get(i).id;
+            mSegmentsById.put(ids[i], segments.get(i));
+        }
+        mPendingUpdates++;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SparseArray<TextSearchIndex> indexes = new SparseArray<TextSearchIndex>();
+                for (int i = 0; i < ids.length; i++) {
+                    final String text = changed.get(ids[i]);
+                    indexes.put(ids[i], text != null ? new TextSearchIndex(text) : mIndexes.get(ids[i]));
+                }
+                mIndexes.clear();
+                for (int i = 0; i < indexes.size(); i++) {
+                    mIndexes.put(indexes.keyAt(i), indexes.valueAt(i));
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mPendingUpdates--;
+                    }
+                });
+            }
+        });
+    }
+
+    private static void collect(View view, ArrayList<Segment> out) {
+        if (view == null || view.getVisibility() == View.GONE) {
+            return;
+        }
+        if (view instanceof TextView) {
+            out.add(new Segment(0, view, ((TextView) view).getText()));
+        } else if (view instanceof PagedTextView) {
+            out.add(new Segment(0, view, ((PagedTextView) view).getText()));
+        } else if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collect(group.getChildAt(i), out);
+            }
+        }
+    }
+
+    /**
+     * Updates the index and searches it, hits arrive on the UI thread in
+     * document order. A new search cancels the running one.
+     */
+    public void search(final String query, final OnSearchResultListener listener) {
+        update();
+        final int generation = ++mSearchGeneration;
+        mDelivered = 0;
+        final int length = TextSearchIndex.matchLength(query);
+        final int[] ids = new int[mSegments.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = mSegments.get(i).id;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ids.length && generation == mSearchGeneration; i++) {
+                    final TextSearchIndex index = mIndexes.get(ids[i]);
+                    if (index == null) {
+                        continue;
+                    }
+                    final int[] starts = index.find(query);
+                    if (starts.length > 0) {
+                        deliver(generation, ids[i], starts, length, listener);
+                    }
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mSearchGeneration) {
+                            listener.onSearchComplete(mDelivered);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void deliver(final int generation, final int id, final int[] starts, final int length,
+            final OnSearchResultListener listener) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final Segment segment = mSegmentsById.get(id);
+                if (generation != mSearchGeneration || segment == null) {
+                    return;
+                }
+                for (int i = 0; i < starts.length; i++) {
+                    final int start = starts[i];
+                    listener.onSearchResult(new SearchHit(segment.view, start, start + length,
+                            getPage(segment.view, start)));
+                    mDelivered++;
+                }
+            }
+        });
+    }
+
+    public void cancelSearch() {
+        mSearchGeneration++;
+    }
+
+    /**
+     * Moves to the page of the hit.
+     */
+    public boolean select(SearchHit hit) {
+        final int page = hit.getPage() > 0 ? hit.getPage() : getPage(hit.getView(), hit.getStart());
+        return page > 0 && mView.moveToPage(page);
+    }
+
+    /**
+     * @return the page the character at offset of view is on, 0 if it is not laid out
+     */
+    private int getPage(View view, int offset) {
+        final int lineTop;
+        if (view instanceof TextView) {
+            final TextView textView = (TextView) view;
+            final Layout layout = textView.getLayout();
+            if (layout == null) {
+                return 0;
+            }
+            lineTop = textView.getTotalPaddingTop() + layout.getLineTop(layout.getLineForOffset(offset));
+        } else {
+            final PagedTextView textView = (PagedTextView) view;
+            int top = -1;
+            for (int i = 0; i < textView.getSectionCount(); i++) {
+                final PagedTextView.Section section = textView.getSection(i);
+                if (offset >= section.start && offset < section.end) {
+                    top = textView.getPaddingTop() + section.top
+                            + section.layout.getLineTop(section.layout.getLineForOffset(offset));
+                    break;
+                }
+            }
+            if (top < 0) {
+                return 0;
+            }
+            lineTop = top;
+        }
+        if (view.getParent() == null) {
+            return 0;
+        }
+        mTempRect.set(0, lineTop, 0, lineTop);
+        mView.offsetDescendantRectToMyCoords(view, mTempRect);
+        return mView.getPageAt(mTempRect.top);
+    }
+
+    /**
+     * Runs the tasks one at a time in order on the shared pool. Tasks are
+     * queued on the UI thread, which takes the priority the following ones
+     * are handed to the pool with from the worker.
+     */
+    private static final class SerialExecutor implements Executor {
+        private final PageResources.OwnerExecutor mTarget;
+        private final LinkedList<Runnable> mTasks = new LinkedList<Runnable>();
+        private Runnable mActive;
+
+        SerialExecutor(PageResources.OwnerExecutor target) {
+            mTarget = target;
+        }
+
+        @Override
+        public synchronized void execute(final Runnable r) {
+            mTarget.updatePriority();
+            mTasks.offer(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        r.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+            if (mActive == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            mActive = mTasks.poll();
+            if (mActive != null) {
+                mTarget.execute(mActive);
+            }
+        }
+    }
+}
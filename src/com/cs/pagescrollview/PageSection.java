@@ -0,0 +1,164 @@
+package com.cs.pagescrollview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A placeholder for part of the content of a {@link PageScrollView}, like a
+ * ViewStub that takes up space. Until it is inflated it is as tall as its
+ * estimated height, so the page count and page turns already account for the
+ * content it stands for. The PageScrollView inflates it in the background
+ * once it comes within {@link PageScrollView#getOffscreenPageLimit()} pages
+ * of the current page and then replaces it with the inflated view, which
+ * gets the layout params of the section.
+ */
+public class PageSection extends View {
+    private int mLayoutResource;
+    private int mInflatedId;
+    private int mEstimatedHeight;
+    private boolean mInflating;
+    private OnInflateListener mInflateListener;
+
+    public interface OnInflateListener {
+        /**
+         * Called on the UI thread after the inflated view replaced the section.
+         */
+        void onInflate(PageSection section, View inflated);
+    }
+
+    public PageSection(Context context) {
+        this(context, null);
+    }
+
+    public PageSection(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public PageSection(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PageSection, defStyleAttr, 0);
+        mLayoutResource = a.getResourceId(R.styleable.PageSection_android_layout, 0);
+        mInflatedId = a.getResourceId(R.styleable.PageSection_android_inflatedId, NO_ID);
+        mEstimatedHeight = a.getDimensionPixelSize(R.styleable.PageSection_estimatedHeight, 0);
+        a.recycle();
+        setWillNotDraw(true);
+    }
+
+    public int getLayoutResource() {
+        return mLayoutResource;
+    }
+
+    public void setLayoutResource(int layoutResource) {
+        mLayoutResource = layoutResource;
+    }
+
+    public int getInflatedId() {
+        return mInflatedId;
+    }
+
+    /**
+     * @param inflatedId the id the inflated view gets, {@link View#NO_ID} to keep its own
+     */
+    public void setInflatedId(int inflatedId) {
+        mInflatedId = inflatedId;
+    }
+
+    public int getEstimatedHeight() {
+        return mEstimatedHeight;
+    }
+
+    /**
+     * @param height the height the section takes up until it is inflated
+     */
+    public void setEstimatedHeight(int height) {
+        if (mEstimatedHeight != height) {
+            mEstimatedHeight = height;
+            requestLayout();
+        }
+    }
+
+    public void setOnInflateListener(OnInflateListener listener) {
+        mInflateListener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(mEstimatedHeight, heightMeasureSpec));
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+    }
+
+    /**
+     * Inflates the layout on the UI thread and replaces the section with it.
+     *
+     * @return the inflated view
+     */
+    public View inflate() {
+        final ViewGroup parent = getParentGroup();
+        final View view = LayoutInflater.from(getContext()).inflate(mLayoutResource, parent, false);
+        replaceWith(parent, view);
+        return view;
+    }
+
+    /**
+     * Inflates the layout in the background unless that already started.
+     *
+     * @param listener called after the section was replaced, not if it was removed meanwhile
+     */
+    void inflateAsync(AsyncPageInflater inflater, final OnInflateListener listener) {
+        if (mInflating) {
+            return;
+        }
+        final ViewGroup parent = getParentGroup();
+        mInflating = true;
+        inflater.inflate(mLayoutResource, parent, new AsyncPageInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(View view, int resid, ViewGroup parent) {
+                mInflating = false;
+                if (getParent() == parent) {
+                    replaceWith(parent, view);
+                    listener.onInflate(PageSection.this, view);
+                }
+            }
+        });
+    }
+
+    private ViewGroup getParentGroup() {
+        if (!(getParent() instanceof ViewGroup)) {
+            throw new IllegalStateException("PageSection must have a non-null ViewGroup viewParent");
+        }
+        if (mLayoutResource == 0) {
+            throw new IllegalArgumentException("PageSection must have a valid layoutResource");
+        }
+        return (ViewGroup) getParent();
+    }
+
+    private void replaceWith(ViewGroup parent, View view) {
+        if (mInflatedId != NO_ID) {
+            view.setId(mInflatedId);
+        }
+        final int index = parent.indexOfChild(this);
+        parent.removeViewInLayout(this);
+        final ViewGroup.LayoutParams layoutParams = getLayoutParams();
+        if (layoutParams != null) {
+            parent.addView(view, index, layoutParams);
+        } else {
+            parent.addView(view, index);
+        }
+        if (mInflateListener != null) {
+            mInflateListener.onInflate(this, view);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Inflates the {@link PageSection}s of a {@link PageScrollView} that come
+ * near the page window. Their bounds are collected after a layout, like
+ * {@link PageVisibilityTracker}, so a scroll only compares intervals. When a
+ * section above the page being read is replaced, the difference between its
+ * estimated and real height is handed back so the reader stays in place.
+ */
+class PageSectionLoader implements PageSection.OnInflateListener {
+    private final PageScrollView mView;
+    private final ArrayList<PageSection> mSections = new ArrayList<PageSection>();
+    private final ArrayList<View> mAnchoredViews = new ArrayList<View>();
+    private final Rect mTempRect = new Rect();
+    private int[] mTops = new int[0];
+    private int[] mBottoms = new int[0];
+    private int[] mAnchoredHeights = new int[0];
+    private AsyncPageInflater mInflater;
+    private boolean mValid;
+
+    PageSectionLoader(PageScrollView view) {
+        mView = view;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Called when views left the page view without a layout pass, drops
+     * their sections without walking the tree again.
+     */
+    void onViewsRemoved() {
+        if (!mValid) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < mSections.size(); i++) {
+            if (PageVisibilityTracker.isDescendant(mView, mSections.get(i))) {
+                mSections.set(kept, mSections.get(i));
+                mTops[kept] = mTops[i];
+                mBottoms[kept] = mBottoms[i];
+                kept++;
+            }
+        }
+        for (int i = mSections.size() - 1; i >= kept; i--) {
+            mSections.remove(i);
+        }
+    }
+
+    private void build() {
+        mSections.clear();
+        for (int i = 0; i < mView.getChildCount(); i++) {
+            collect(mView.getChildAt(i));
+        }
+        final int count = mSections.size();
+        if (mTops.length < count) {
+            mTops = new int[count];
+            mBottoms = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            final PageSection section = mSections.get(i);
+            section.getDrawingRect(mTempRect);
+            mView.offsetDescendantRectToMyCoords(section, mTempRect);
+            mTops[i] = mTempRect.top;
+            mBottoms[i] = mTempRect.bottom;
+        }
+        mValid = true;
+    }
+
+    private void collect(View view) {
+        if (view instanceof PageSection) {
+            mSections.add((PageSection) view);
+        } else if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collect(group.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * Starts inflating the sections overlapping the given range.
+     *
+     * @param top the top of the range in scroll coordinates
+     * @param bottom the bottom of the range
+     */
+    void update(int top, int bottom) {
+        if (!mValid) {
+            build();
+        }
+        for (int i = 0; i < mSections.size(); i++) {
+            if (mBottoms[i] > top && mTops[i] < bottom) {
+                if (mInflater == null) {
+                    mInflater = new AsyncPageInflater(mView.getContext());
+                }
+                mSections.get(i).inflateAsync(mInflater, this);
+            }
+        }
+    }
+
+    @Override
+    public void onInflate(PageSection section, View inflated) {
+        final int index = mSections.indexOf(section);
+        if (index < 0) {
+            return;
+        }
+        final int top = mTops[index];
+        if (top < mView.getScrollY()) {
+            if (mAnchoredHeights.length == mAnchoredViews.size()) {
+                final int[] heights = new int[mAnchoredViews.size() + 4];
+                System.arraycopy(mAnchoredHeights, 0, heights, 0, mAnchoredViews.size());
+                mAnchoredHeights = heights;
+            }
+            mAnchoredHeights[mAnchoredViews.size()] = mBottoms[index] - top;
+            mAnchoredViews.add(inflated);
+        }
+        // The pages above the section stay as they are
+        mView.invalidatePageBreaks(top);
+    }
+
+    /**
+     * Called after the layout that gave the inflated views their height.
+     *
+     * @return how much the content at the scroll position moved down
+     */
+    int consumeScrollDelta() {
+        int delta = 0;
+        for (int i = 0; i < mAnchoredViews.size(); i++) {
+            final View view = mAnchoredViews.get(i);
+            if (view.getParent() != null) {
+                delta += view.getHeight() - mAnchoredHeights[i];
+            }
+        }
+        mAnchoredViews.clear();
+        return delta;
+    }
+}
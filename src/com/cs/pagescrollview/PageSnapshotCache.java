@@ -0,0 +1,175 @@
+package com.cs.pagescrollview;
+
+import java.util.concurrent.Executor;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.util.SparseBooleanArray;
+import android.view.View;
+
+/**
+ * Memory bounded LRU of pre-rendered pages. A page is recorded into a
+ * {@link Picture} on the UI thread, which is cheap, and rasterized into a
+ * bitmap on a background thread. {@link PageScrollView} draws a cached page
+ * for the first frame after a page turn and then swaps the live views back in.
+ */
+public class PageSnapshotCache {
+    private final LruCache<Integer, Bitmap> mCache;
+    private final SparseBooleanArray mPending = new SparseBooleanArray();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private int mGeneration;
+    private int mHitCount;
+    private int mMissCount;
+    private PageResources mResources;
+    private Executor mExecutor;
+
+    /**
+     * @param maxBytes the maximum number of bytes the cached bitmaps may use
+     */
+    public PageSnapshotCache(int maxBytes) {
+        mCache = new LruCache<Integer, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+    }
+
+    /**
+     * Renders on the shared pool and counts against the shared memory budget.
+     *
+     * @param owner the view the pages belong to
+     */
+    void setResources(PageResources resources, View owner) {
+        mResources = resources;
+        mExecutor = resources.executorFor(owner);
+    }
+
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    public int size() {
+        return mCache.size();
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return hits / (hits + misses) of page turns, 0 before the first turn
+     */
+    public float getHitRate() {
+        final int total = mHitCount + mMissCount;
+        return total == 0 ? 0 : mHitCount * 1.0f / total;
+    }
+
+    public void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    /**
+     * Looks up a page for a page turn, report with {@link #countTurn(boolean)}
+     * whether it could be shown.
+     */
+    Bitmap get(int page) {
+        return mCache.get(page);
+    }
+
+    /**
+     * Counts a page turn as a hit when its snapshot was shown, otherwise as a miss.
+     */
+    void countTurn(boolean hit) {
+        if (hit) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+    }
+
+    /**
+     * Starts rendering a page unless it is cached or already being rendered.
+     * Must be called on the UI thread.
+     *
+     * @param content the content child of the PageScrollView
+     * @param page the 1-based page
+     * @param top the scroll offset the page starts at
+     * @param width the width of a page
+     * @param pageHeight the height of a page
+     */
+    void warmUp(View content, int page, int top, int width, int pageHeight) {
+        if (mExecutor == null || page < 1 || width <= 0 || pageHeight <= 0
+                || mCache.get(page) != null || mPending.get(page)) {
+            return;
+        }
+        final Picture picture = new Picture();
+        final Canvas canvas = picture.beginRecording(width, pageHeight);
+        // Children off the page are rejected by the clip instead of being recorded
+        canvas.clipRect(0, 0, width, pageHeight);
+        canvas.translate(content.getLeft(), content.getTop() - top);
+        content.draw(canvas);
+        picture.endRecording();
+        mPending.put(page, true);
+        final int key = page;
+        final int generation = mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap;
+                try {
+                    bitmap = Bitmap.createBitmap(picture.getWidth(), picture.getHeight(),
+                            Bitmap.Config.ARGB_8888);
+                } catch (OutOfMemoryError e) {
+                    post(generation, key, null);
+                    return;
+                }
+                picture.draw(new Canvas(bitmap));
+                post(generation, key, bitmap);
+            }
+        });
+    }
+
+    private void post(final int generation, final int page, final Bitmap bitmap) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mPending.delete(page);
+                if (bitmap != null) {
+                    mCache.put(page, bitmap);
+                    if (mResources != null) {
+                        mResources.enforceBudget();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts the least recently used snapshots until at most maxBytes are used.
+     */
+    void trimToSize(int maxBytes) {
+        mCache.trimToSize(maxBytes);
+    }
+
+    /**
+     * Drops every snapshot, called when the content or the page size changes.
+     */
+    public void invalidate() {
+        mGeneration++;
+        mPending.clear();
+        mCache.evictAll();
+    }
+}
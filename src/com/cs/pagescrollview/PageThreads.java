@@ -0,0 +1,32 @@
+package com.cs.pagescrollview;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Process;
+
+/**
+ * Thread factory for the background work of the paging components, threads
+ * run at background priority and never keep the process alive.
+ */
+class PageThreads implements ThreadFactory {
+    private final String mName;
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    PageThreads(String name) {
+        mName = name;
+    }
+
+    @Override
+    public Thread newThread(final Runnable r) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }
+        }, mName + "-" + mCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,481 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.util.AttributeSet;
+import android.util.SparseBooleanArray;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.Scroller;
+
+/**
+ * Horizontal strip of page thumbnails for a {@link PageScrollView}, tapping
+ * one moves to its page. Thumbnails are made one at a time, starting with the
+ * visible ones: a page is recorded at thumbnail scale into a {@link Picture} on
+ * the UI thread and rasterized on a background thread into a pooled bitmap,
+ * so no full size page is ever rendered. The thumbnails live in a memory
+ * bounded LRU. Only bitmaps that were never drawn go back to the pool, an
+ * evicted one may still be referenced by the last recorded frame.
+ */
+public class PageThumbnailStrip extends View implements PageScrollView.OnPageChangeListener {
+    private static final int DEFAULT_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_POOL_SIZE = 4;
+    private static final int SPACING_DP = 8;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final Scroller mScroller;
+    private final GestureDetector mGestureDetector;
+    private final int mSpacing;
+    private final ArrayList<Bitmap> mPool = new ArrayList<Bitmap>();
+    private final SparseBooleanArray mPending = new SparseBooleanArray();
+    private final SparseBooleanArray mFailed = new SparseBooleanArray();
+    private final PageResources mResources;
+    private final Executor mExecutor;
+    private final PageResources.MemoryClient mMemoryClient = new PageResources.MemoryClient() {
+        @Override
+        public View getOwner() {
+            return PageThumbnailStrip.this;
+        }
+
+        @Override
+        public int getMemoryUsage() {
+            return mCache.size();
+        }
+
+        @Override
+        public void trimMemory(int maxBytes) {
+            if (mCache.size() > maxBytes) {
+                mCache.trimToSize(maxBytes);
+                // Memory was freed, pages that ran out of it may succeed now
+                mFailed.clear();
+            }
+        }
+    };
+    private LruCache<Integer, Bitmap> mCache;
+    private PageScrollView mPageView;
+    private int mThumbWidth;
+    private int mThumbHeight;
+    private int mPageCount;
+    private int mCurPage;
+    private int mGeneration;
+    private boolean mGenerating;
+    private int mCurrentColor = Color.RED;
+    private int mPlaceholderColor = Color.LTGRAY;
+
+    private final Runnable mGenerateNext = new Runnable() {
+        @Override
+        public void run() {
+            generateNext();
+        }
+    };
+    private final ViewTreeObserver.OnGlobalLayoutListener mLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            // The pages may have been laid out at another size
+            updateGeometry();
+        }
+    };
+
+    public PageThumbnailStrip(Context context) {
+        this(context, null);
+    }
+
+    public PageThumbnailStrip(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mResources = PageResources.get(context);
+        mExecutor = mResources.executorFor(this);
+        mSpacing = (int) (SPACING_DP * context.getResources().getDisplayMetrics().density + 0.5f);
+        mScroller = new Scroller(context);
+        mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                mScroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                scrollTo(clampScroll(getScrollX() + (int) distanceX), 0);
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                mScroller.fling(getScrollX(), 0, (int) -velocityX, 0, 0, getMaxScroll(), 0, 0);
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                final int page = getPageAt(e.getX() + getScrollX());
+                if (page > 0 && mPageView != null) {
+                    mPageView.moveToPage(page);
+                }
+                return true;
+            }
+        });
+        setCacheSize(DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param maxBytes memory the thumbnails may use
+     */
+    public void setCacheSize(int maxBytes) {
+        if (mCache != null) {
+            mCache.evictAll();
+        }
+        mCache = new LruCache<Integer, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+        invalidateThumbnails();
+    }
+
+    public void setCurrentPageColor(int color) {
+        mCurrentColor = color;
+        invalidate();
+    }
+
+    public void setPlaceholderColor(int color) {
+        mPlaceholderColor = color;
+        invalidate();
+    }
+
+    /**
+     * @param view the pages to show, null to unbind
+     */
+    public void setPageScrollView(PageScrollView view) {
+        if (mPageView != null) {
+            mPageView.removeOnPageChangeListener(this);
+        }
+        mPageView = view;
+        if (view != null) {
+            view.addOnPageChangeListener(this);
+            mCurPage = view.getCurPage();
+        }
+        invalidateThumbnails();
+    }
+
+    /**
+     * Drops every thumbnail, call it when the content of the pages changed.
+     */
+    public void invalidateThumbnails() {
+        mGeneration++;
+        mPending.clear();
+        mFailed.clear();
+        mGenerating = false;
+        mHandler.removeCallbacks(mGenerateNext);
+        if (mCache != null) {
+            mCache.evictAll();
+        }
+        mPageCount = 0;
+        mThumbWidth = 0;
+        updateGeometry();
+        invalidate();
+    }
+
+    @Override
+    public void onPageChanged(int oldPage, int newPage, int totalPage) {
+        mCurPage = newPage;
+        if (totalPage != mPageCount) {
+            invalidateThumbnails();
+            return;
+        }
+        // Keep the current page in view
+        final int left = getThumbLeft(newPage);
+        if (left < getScrollX() || left + mThumbWidth > getScrollX() + getWidth()) {
+            mScroller.forceFinished(true);
+            scrollTo(clampScroll(left - (getWidth() - mThumbWidth) / 2), 0);
+        }
+        invalidate();
+        scheduleGenerate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry();
+    }
+
+    /**
+     * Sizes the thumbnails from the page size, once the pages are laid out.
+     * Called after layouts and from the setters, never while drawing.
+     */
+    private void updateGeometry() {
+        if (mPageView == null || mPageView.getHeight() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        final int pageCount = mPageView.getTotalPage();
+        final int thumbHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        final int thumbWidth = Math.max(1, thumbHeight * mPageView.getWidth() / mPageView.getHeight());
+        if (pageCount != mPageCount || thumbWidth != mThumbWidth || thumbHeight != mThumbHeight) {
+            if (thumbWidth != mThumbWidth || thumbHeight != mThumbHeight) {
+                synchronized (mPool) {
+                    mPool.clear();
+                }
+            }
+            mGeneration++;
+            mPending.clear();
+            mFailed.clear();
+            mGenerating = false;
+            mCache.evictAll();
+            mPageCount = pageCount;
+            mThumbWidth = thumbWidth;
+            mThumbHeight = thumbHeight;
+            mCurPage = mPageView.getCurPage();
+            scrollTo(clampScroll(getScrollX()), 0);
+            invalidate();
+        }
+    }
+
+    private int getThumbLeft(int page) {
+        return getPaddingLeft() + (page - 1) * (mThumbWidth + mSpacing);
+    }
+
+    /**
+     * @return the page under x in content coordinates, 0 if none
+     */
+    private int getPageAt(float x) {
+        if (mThumbWidth <= 0) {
+            return 0;
+        }
+        final int offset = (int) x - getPaddingLeft();
+        final int page = offset / (mThumbWidth + mSpacing) + 1;
+        if (offset < 0 || page > mPageCount || offset % (mThumbWidth + mSpacing) > mThumbWidth) {
+            return 0;
+        }
+        return page;
+    }
+
+    private int getMaxScroll() {
+        final int contentWidth = getPaddingLeft() + getPaddingRight()
+                + mPageCount * (mThumbWidth + mSpacing) - mSpacing;
+        return Math.max(0, contentWidth - getWidth());
+    }
+
+    private int clampScroll(int x) {
+        return Math.max(0, Math.min(getMaxScroll(), x));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return mGestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(clampScroll(mScroller.getCurrX()), 0);
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        scheduleGenerate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mPageCount <= 0 || mThumbWidth <= 0) {
+            return;
+        }
+        final int first = Math.max(1, getPageAt(getScrollX()));
+        final int top = getPaddingTop();
+        for (int page = first; page <= mPageCount; page++) {
+            final int left = getThumbLeft(page);
+            if (left > getScrollX() + getWidth()) {
+                break;
+            }
+            final Bitmap bitmap = mCache.get(page);
+            if (bitmap != null) {
+                canvas.drawBitmap(bitmap, left, top, mPaint);
+            } else {
+                mPaint.setStyle(Paint.Style.FILL);
+                mPaint.setColor(mPlaceholderColor);
+                canvas.drawRect(left, top, left + mThumbWidth, top + mThumbHeight, mPaint);
+            }
+            if (page == mCurPage) {
+                mPaint.setStyle(Paint.Style.STROKE);
+                mPaint.setStrokeWidth(mSpacing / 4f);
+                mPaint.setColor(mCurrentColor);
+                canvas.drawRect(left, top, left + mThumbWidth, top + mThumbHeight, mPaint);
+            }
+        }
+        scheduleGenerate();
+    }
+
+    private void scheduleGenerate() {
+        if (!mGenerating && mThumbWidth > 0) {
+            mGenerating = true;
+            mHandler.post(mGenerateNext);
+        }
+    }
+
+    /**
+     * @return the page to make next, visible pages first, then outwards from
+     *         the current page while the cache has room; 0 if none
+     */
+    private int findNextPage() {
+        final int first = Math.max(1, getPageAt(getScrollX()));
+        for (int page = first; page <= mPageCount && getThumbLeft(page) < getScrollX() + getWidth(); page++) {
+            if (needsThumbnail(page)) {
+                return page;
+            }
+        }
+        final int thumbBytes = mThumbWidth * mThumbHeight * 4;
+        final int reach = Math.max(1, mCache.maxSize() / Math.max(1, thumbBytes)) / 2;
+        for (int distance = 1; distance <= reach; distance++) {
+            if (needsThumbnail(mCurPage + distance)) {
+                return mCurPage + distance;
+            }
+            if (needsThumbnail(mCurPage - distance)) {
+                return mCurPage - distance;
+            }
+        }
+        return 0;
+    }
+
+    private boolean needsThumbnail(int page) {
+        return page >= 1 && page <= mPageCount && !mPending.get(page) && !mFailed.get(page)
+                && mCache.get(page) == null;
+    }
+
+    /**
+     * Records the next page on the UI thread and rasterizes it in the background,
+     * only one page is in flight so generating never competes with page turns.
+     */
+    private void generateNext() {
+        final View content = mPageView != null ? mPageView.getChildAt(0) : null;
+        final int page = content != null && mThumbWidth > 0 ? findNextPage() : 0;
+        if (page == 0) {
+            mGenerating = false;
+            return;
+        }
+        final float scale = mThumbHeight * 1.0f / mPageView.getHeight();
+        final Picture picture = new Picture();
+        final Canvas canvas = picture.beginRecording(mThumbWidth, mThumbHeight);
+        canvas.clipRect(0, 0, mThumbWidth, mThumbHeight);
+        canvas.scale(scale, scale);
+        canvas.translate(content.getLeft(), content.getTop() - mPageView.getPageTop(page));
+        content.draw(canvas);
+        picture.endRecording();
+        mPending.put(page, true);
+        final int generation = mGeneration;
+        final int width = mThumbWidth;
+        final int height = mThumbHeight;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = obtain(width, height);
+                if (bitmap != null) {
+                    picture.draw(new Canvas(bitmap));
+                }
+                final Bitmap thumbnail = bitmap;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onThumbnailReady(generation, page, thumbnail);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onThumbnailReady(int generation, int page, Bitmap bitmap) {
+        if (generation != mGeneration) {
+            release(bitmap);
+            return;
+        }
+        mPending.delete(page);
+        if (bitmap != null) {
+            mCache.put(page, bitmap);
+            mResources.enforceBudget();
+            final int left = getThumbLeft(page);
+            invalidate(left, 0, left + mThumbWidth, getHeight());
+        } else {
+            // Out of memory, skip the page until memory is trimmed or the thumbnails reset
+            mFailed.put(page, true);
+        }
+        mHandler.post(mGenerateNext);
+    }
+
+    /**
+     * Takes a bitmap of the size from the pool, or allocates one. Called on the worker.
+     */
+    private Bitmap obtain(int width, int height) {
+        synchronized (mPool) {
+            for (int i = mPool.size() - 1; i >= 0; i--) {
+                final Bitmap bitmap = mPool.remove(i);
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        try {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        synchronized (mPool) {
+            if (mPool.size() < MAX_POOL_SIZE && bitmap.getWidth() == mThumbWidth
+                    && bitmap.getHeight() == mThumbHeight) {
+                mPool.add(bitmap);
+            }
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mResources.register(mMemoryClient);
+        getViewTreeObserver().addOnGlobalLayoutListener(mLayoutListener);
+        if (mPageView != null) {
+            mPageView.removeOnPageChangeListener(this);
+            mPageView.addOnPageChangeListener(this);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    protected void onDetachedFromWindow() {
+        mResources.unregister(mMemoryClient);
+        // removeOnGlobalLayoutListener needs Jelly Bean
+        getViewTreeObserver().removeGlobalOnLayoutListener(mLayoutListener);
+        if (mPageView != null) {
+            mPageView.removeOnPageChangeListener(this);
+        }
+        mHandler.removeCallbacks(mGenerateNext);
+        mGenerating = false;
+        mGeneration++;
+        mPending.clear();
+        mFailed.clear();
+        super.onDetachedFromWindow();
+    }
+}
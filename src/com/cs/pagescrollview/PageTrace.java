@@ -0,0 +1,113 @@
+package com.cs.pagescrollview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * Records gesture phases of a {@link PageScrollView} into a preallocated ring
+ * buffer and emits systrace sections. Nothing is allocated or formatted while
+ * tracing is disabled; the buffer is only turned into text by {@link #dump()}.
+ */
+public class PageTrace {
+    public static final int PHASE_DOWN = 0;
+    public static final int PHASE_SLOP = 1;
+    public static final int PHASE_PAGE = 2;
+    public static final int PHASE_SCROLL = 3;
+    public static final int PHASE_INTERCEPT = 4;
+    public static final int PHASE_TOUCH = 5;
+    public static final int PHASE_ERROR = 6;
+    private static final String[] PHASE_NAMES = {
+        "down", "slop", "page", "scroll", "intercept", "touch", "error"
+    };
+    private static final int DEFAULT_CAPACITY = 128;
+
+    private final String mTag;
+    private final int mCapacity;
+    private boolean mEnabled;
+    private long[] mTimes;
+    private int[] mPhases;
+    private int[] mArg1;
+    private int[] mArg2;
+    private int mNext;
+    private int mCount;
+
+    public PageTrace(String tag) {
+        this(tag, DEFAULT_CAPACITY);
+    }
+
+    public PageTrace(String tag, int capacity) {
+        mTag = tag;
+        mCapacity = capacity;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * The ring buffer is allocated the first time tracing is enabled and kept
+     * afterwards, so toggling does not churn memory.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && mTimes == null) {
+            mTimes = new long[mCapacity];
+            mPhases = new int[mCapacity];
+            mArg1 = new int[mCapacity];
+            mArg2 = new int[mCapacity];
+        }
+        mEnabled = enabled;
+    }
+
+    public void record(int phase, int arg1, int arg2) {
+        if (!mEnabled) {
+            return;
+        }
+        final int i = mNext;
+        mTimes[i] = SystemClock.uptimeMillis();
+        mPhases[i] = phase;
+        mArg1[i] = arg1;
+        mArg2[i] = arg2;
+        mNext = (i + 1) % mCapacity;
+        if (mCount < mCapacity) {
+            mCount++;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void beginSection(String name) {
+        if (mEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public void endSection() {
+        if (mEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public void clear() {
+        mNext = 0;
+        mCount = 0;
+    }
+
+    /**
+     * Writes the recorded phases, oldest first, to logcat and clears the buffer.
+     */
+    public void dump() {
+        final int start = (mNext - mCount + mCapacity) % mCapacity;
+        for (int n = 0; n < mCount; n++) {
+            final int i = (start + n) % mCapacity;
+            Log.d(mTag, mTimes[i] + " " + PHASE_NAMES[mPhases[i]] + " " + mArg1[i] + "," + mArg2[i]);
+        }
+        clear();
+    }
+}
@@ -0,0 +1,140 @@
+package com.cs.pagescrollview;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewPropertyAnimator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * Animates a page turn of {@link PageScrollView} after the scroll position has
+ * already been set. Only the translation or alpha of the content view is
+ * animated, which are render node properties, so frames are composited
+ * without re-layout or re-recording the content. If frames keep running over
+ * budget the transition degrades to instant turns on its own.
+ * <p>
+ * Only load this class on Jelly Bean and later, it implements
+ * {@link Choreographer.FrameCallback}.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class PageTransition implements Choreographer.FrameCallback {
+    static final int NONE = 0;
+    static final int SLIDE = 1;
+    static final int FADE = 2;
+    private static final long DURATION = 250;
+    /**
+     * One and a half frames at 60fps
+     */
+    private static final long FRAME_BUDGET_NANOS = 25000000L;
+    private static final int MAX_SLOW_FRAMES = 3;
+    /**
+     * Layers taller than this may exceed the maximum texture size of older GPUs,
+     * used until the real limit is known
+     */
+    private static final int DEFAULT_MAX_LAYER_HEIGHT = 2048;
+
+    private final Interpolator mInterpolator = new DecelerateInterpolator();
+    private final Animator.AnimatorListener mEndListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            stopMonitor();
+        }
+    };
+    private int mMode = NONE;
+    private boolean mDegraded;
+    private View mTarget;
+    private boolean mRunning;
+    private long mLastFrameNanos;
+    private int mSlowFrames;
+    private int mMaxLayerHeight = DEFAULT_MAX_LAYER_HEIGHT;
+
+    int getMode() {
+        return mMode;
+    }
+
+    void setMode(int mode) {
+        cancel();
+        mMode = mode;
+        mDegraded = false;
+    }
+
+    boolean isDegraded() {
+        return mDegraded;
+    }
+
+    /**
+     * @param height the maximum texture size of the GPU drawing the target
+     */
+    void setMaxLayerHeight(int height) {
+        mMaxLayerHeight = height;
+    }
+
+    /**
+     * @param target the content view, already at its final scroll position
+     * @param scrollDelta how far the scroll position just moved
+     */
+    void start(View target, int scrollDelta) {
+        if (mMode == NONE || mDegraded || scrollDelta == 0) {
+            return;
+        }
+        cancel();
+        mTarget = target;
+        final ViewPropertyAnimator animator = target.animate();
+        animator.setDuration(DURATION).setInterpolator(mInterpolator).setListener(mEndListener);
+        if (target.getHeight() <= mMaxLayerHeight) {
+            animator.withLayer();
+        }
+        if (mMode == SLIDE) {
+            // Start where the content was before the scroll and slide into place
+            target.setTranslationY(scrollDelta);
+            animator.translationY(0);
+        } else {
+            target.setAlpha(0);
+            animator.alpha(1);
+        }
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mSlowFrames = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0 && frameTimeNanos - mLastFrameNanos > FRAME_BUDGET_NANOS) {
+            if (++mSlowFrames >= MAX_SLOW_FRAMES) {
+                mDegraded = true;
+                cancel();
+                return;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Jumps the running transition to its end.
+     */
+    void cancel() {
+        if (mTarget != null) {
+            mTarget.animate().setListener(null).cancel();
+            mTarget.setTranslationY(0);
+            mTarget.setAlpha(1);
+            mTarget = null;
+        }
+        stopMonitor();
+    }
+
+    private void stopMonitor() {
+        if (mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.cs.pagescrollview.PageScrollView.OnPageVisibilityChangeListener;
+
+/**
+ * Tracks which descendants implementing {@link OnPageVisibilityChangeListener}
+ * overlap the page window of a {@link PageScrollView} and tells them when that
+ * changes. Their bounds are collected after a layout, so a scroll only
+ * compares a few intervals with the window.
+ */
+class PageVisibilityTracker {
+    private final ArrayList<Entry> mEntries = new ArrayList<Entry>();
+    private final HashMap<View, Entry> mOldEntries = new HashMap<View, Entry>();
+    private final Rect mTempRect = new Rect();
+    private boolean mValid;
+
+    private static final class Entry {
+        final View view;
+        int top;
+        int bottom;
+        /**
+         * Everything under the content is visible as far as Android knows
+         */
+        boolean visible = true;
+
+        Entry(View view) {
+            this.view = view;
+        }
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Called when views left host without a layout pass, drops their entries
+     * without walking the tree again.
+     */
+    void onViewsRemoved(ViewGroup host) {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            if (!isDescendant(host, mEntries.get(i).view)) {
+                release(mEntries.remove(i));
+            }
+        }
+    }
+
+    /**
+     * A view that is tracked again starts as visible, so one that was told it
+     * is hidden is told it is shown before it is dropped, e.g. when its page
+     * is recycled.
+     */
+    private static void release(Entry entry) {
+        if (!entry.visible) {
+            entry.visible = true;
+            ((OnPageVisibilityChangeListener) entry.view).onPageVisibilityChanged(true);
+        }
+    }
+
+    static boolean isDescendant(ViewGroup host, View view) {
+        ViewParent parent = view.getParent();
+        while (parent != null && parent != host) {
+            parent = parent.getParent();
+        }
+        return parent == host;
+    }
+
+    /**
+     * Collects the listening descendants of host and their bounds.
+     */
+    void build(ViewGroup host) {
+        mOldEntries.clear();
+        for (int i = 0; i < mEntries.size(); i++) {
+            mOldEntries.put(mEntries.get(i).view, mEntries.get(i));
+        }
+        mEntries.clear();
+        for (int i = 0; i < host.getChildCount(); i++) {
+            collect(host, host.getChildAt(i));
+        }
+        for (Entry entry : mOldEntries.values()) {
+            release(entry);
+        }
+        mOldEntries.clear();
+        mValid = true;
+    }
+
+    private void collect(ViewGroup host, View view) {
+        if (view instanceof OnPageVisibilityChangeListener) {
+            Entry entry = mOldEntries.remove(view);
+            if (entry == null) {
+                entry = new Entry(view);
+            }
+            view.getDrawingRect(mTempRect);
+            host.offsetDescendantRectToMyCoords(view, mTempRect);
+            entry.top = mTempRect.top;
+            entry.bottom = mTempRect.bottom;
+            mEntries.add(entry);
+        }
+        if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collect(host, group.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * Tells the listening descendants that entered or left the window.
+     *
+     * @param top the top of the page window in scroll coordinates
+     * @param bottom the bottom of the page window
+     */
+    void update(ViewGroup host, int top, int bottom) {
+        if (!mValid) {
+            build(host);
+        }
+        for (int i = 0; i < mEntries.size(); i++) {
+            final Entry entry = mEntries.get(i);
+            final boolean visible = entry.bottom > top && entry.top < bottom;
+            if (visible != entry.visible) {
+                entry.visible = visible;
+                ((OnPageVisibilityChangeListener) entry.view).onPageVisibilityChanged(visible);
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Long text for the content of a {@link PageScrollView}. The text is cut into
+ * sections at paragraph ends and the layout of every section is built in
+ * parallel on a worker pool, so opening a long document does not stall the UI
+ * thread. The view grows as sections finish in order, which makes the first
+ * page readable as soon as its section is ready and lets
+ * {@link PageScrollView#getTotalPage()} catch up incrementally.
+ */
+public class PagedTextView extends View {
+    private static final int SECTION_LENGTH = 4096;
+    private final TextPaint mPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Rect mClipRect = new Rect();
+    private final Executor mExecutor;
+    private final ArrayList<Section> mSections = new ArrayList<Section>();
+    private final ArrayList<Future<?>> mTasks = new ArrayList<Future<?>>();
+    private CharSequence mText = "";
+    private float mSpacingMult = 1.0f;
+    private float mSpacingAdd;
+    private int mLayoutWidth;
+    private int mGeneration;
+    /**
+     * Number of leading sections that are laid out and shown
+     */
+    private int mReadyCount;
+    private int mReadyHeight;
+    /**
+     * Top of the text that changed since {@link #consumeChangedOffset()} was last called
+     */
+    private int mChangedOffset;
+    /**
+     * The part of the view a {@link PageScrollView} shows or is about to show,
+     * in view coordinates, and the sections recorded for it
+     */
+    private boolean mHasPageWindow;
+    private int mPageWindowTop;
+    private int mPageWindowBottom;
+    private int mFirstDrawn;
+    private int mLastDrawn = -1;
+
+    static final class Section {
+        final int start;
+        final int end;
+        int top;
+        StaticLayout layout;
+
+        Section(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    public PagedTextView(Context context) {
+        this(context, null);
+    }
+
+    public PagedTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public PagedTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mExecutor = PageResources.get(context).executorFor(this);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PagedTextView, defStyleAttr, 0);
+        mPaint.setTextSize(a.getDimension(R.styleable.PagedTextView_android_textSize, mPaint.getTextSize()));
+        mPaint.setColor(a.getColor(R.styleable.PagedTextView_android_textColor, Color.BLACK));
+        mSpacingAdd = a.getDimension(R.styleable.PagedTextView_android_lineSpacingExtra, 0);
+        mSpacingMult = a.getFloat(R.styleable.PagedTextView_android_lineSpacingMultiplier, 1.0f);
+        CharSequence text = a.getText(R.styleable.PagedTextView_android_text);
+        a.recycle();
+        if (text != null) {
+            mText = text;
+        }
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    public void setText(CharSequence text) {
+        mText = text != null ? text : "";
+        restartPagination();
+    }
+
+    public void setTextSize(float px) {
+        mPaint.setTextSize(px);
+        restartPagination();
+    }
+
+    public void setTextColor(int color) {
+        mPaint.setColor(color);
+        invalidate();
+    }
+
+    public void setLineSpacing(float add, float mult) {
+        mSpacingAdd = add;
+        mSpacingMult = mult;
+        restartPagination();
+    }
+
+    /**
+     * @return true once every section is laid out and the height is final
+     */
+    public boolean isPaginationComplete() {
+        return mReadyCount == mSections.size() && mLayoutWidth > 0;
+    }
+
+    int getSectionCount() {
+        return mReadyCount;
+    }
+
+    Section getSection(int index) {
+        return mSections.get(index);
+    }
+
+    /**
+     * Sections are only ever appended until the text or its layout changes,
+     * so a {@link PageScrollView} only has to re-paginate from here.
+     *
+     * @return the top of the changed text, {@link Integer#MAX_VALUE} if nothing changed
+     */
+    int consumeChangedOffset() {
+        final int offset = mChangedOffset;
+        mChangedOffset = Integer.MAX_VALUE;
+        return offset;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int layoutWidth = width - getPaddingLeft() - getPaddingRight();
+        if (layoutWidth != mLayoutWidth) {
+            mLayoutWidth = layoutWidth;
+            // Already being measured, the sections request a layout as they finish
+            startPagination();
+        }
+        setMeasuredDimension(width, resolveSize(mReadyHeight + getPaddingTop() + getPaddingBottom(),
+                heightMeasureSpec));
+    }
+
+    private void restartPagination() {
+        startPagination();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Cuts the text into sections and starts laying them out, without
+     * requesting a layout, so it is safe to call while being measured.
+     */
+    private void startPagination() {
+        cancelPagination();
+        mSections.clear();
+        mReadyCount = 0;
+        mReadyHeight = 0;
+        mChangedOffset = 0;
+        if (mLayoutWidth > 0) {
+            final CharSequence text = mText;
+            final int length = text.length();
+            int start = 0;
+            while (start < length) {
+                int end = Math.min(length, start + SECTION_LENGTH);
+                // Cut after the end of a paragraph so line breaking is not affected
+                while (end < length && text.charAt(end - 1) != '\n') {
+                    end++;
+                }
+                mSections.add(new Section(start, end));
+                start = end;
+            }
+            for (int i = 0; i < mSections.size(); i++) {
+                final FutureTask<Void> task = new FutureTask<Void>(new LayoutTask(mGeneration, i, text), null);
+                mTasks.add(task);
+                mExecutor.execute(task);
+            }
+        }
+    }
+
+    private void cancelPagination() {
+        mGeneration++;
+        for (int i = 0; i < mTasks.size(); i++) {
+            mTasks.get(i).cancel(false);
+        }
+        mTasks.clear();
+    }
+
+    private final class LayoutTask implements Runnable {
+        private final int mTaskGeneration;
+        private final int mIndex;
+        private final CharSequence mTaskText;
+        private final int mStart;
+        private final int mEnd;
+        private final TextPaint mTaskPaint;
+        private final int mWidth;
+        private final float mMult;
+        private final float mAdd;
+
+        /**
+         * Copies everything the worker needs, the view's fields are only touched on the UI thread.
+         */
+        LayoutTask(int generation, int index, CharSequence text) {
+            final Section section = mSections.get(index);
+            mTaskGeneration = generation;
+            mIndex = index;
+            mTaskText = text;
+            mStart = section.start;
+            mEnd = section.end;
+            // StaticLayout measures with the paint, every worker needs its own
+            mTaskPaint = new TextPaint(mPaint);
+            mWidth = mLayoutWidth;
+            mMult = mSpacingMult;
+            mAdd = mSpacingAdd;
+        }
+
+        @Override
+        public void run() {
+            final StaticLayout layout = new StaticLayout(mTaskText, mStart, mEnd, mTaskPaint,
+                    mWidth, Layout.Alignment.ALIGN_NORMAL, mMult, mAdd, false);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mTaskGeneration == mGeneration) {
+                        onSectionReady(mIndex, layout);
+                    }
+                }
+            });
+        }
+    }
+
+    private void onSectionReady(int index, StaticLayout layout) {
+        mSections.get(index).layout = layout;
+        final int oldReady = mReadyCount;
+        final int oldHeight = mReadyHeight;
+        while (mReadyCount < mSections.size() && mSections.get(mReadyCount).layout != null) {
+            final Section section = mSections.get(mReadyCount);
+            section.top = mReadyHeight;
+            mReadyHeight += section.layout.getHeight();
+            mReadyCount++;
+        }
+        if (mReadyCount != oldReady) {
+            mChangedOffset = Math.min(mChangedOffset, getPaddingTop() + oldHeight);
+            if (mReadyCount == mSections.size()) {
+                mTasks.clear();
+            }
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * Called by the {@link PageScrollView} as it scrolls. A display list is
+     * recorded with the whole view as its clip, so under hardware
+     * acceleration only the sections overlapping the window are recorded, and
+     * the view is only invalidated when the window reaches other sections.
+     *
+     * @param top the top of the window in view coordinates
+     * @param bottom the bottom of the window
+     */
+    void setPageWindow(int top, int bottom) {
+        mHasPageWindow = true;
+        mPageWindowTop = top;
+        mPageWindowBottom = bottom;
+        if (findFirstSection(top) != mFirstDrawn || findLastSection(bottom) != mLastDrawn) {
+            invalidate();
+        }
+    }
+
+    /**
+     * @return the first ready section reaching below top
+     */
+    private int findFirstSection(int top) {
+        final int paddingTop = getPaddingTop();
+        int low = 0;
+        int high = mReadyCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final Section section = mSections.get(mid);
+            if (paddingTop + section.top + section.layout.getHeight() < top) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the last ready section starting above bottom, -1 if there is none
+     */
+    private int findLastSection(int bottom) {
+        final int paddingTop = getPaddingTop();
+        int low = 0;
+        int high = mReadyCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (paddingTop + mSections.get(mid).top <= bottom) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    @SuppressLint("NewApi")
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!canvas.getClipBounds(mClipRect)) {
+            return;
+        }
+        // Software canvases, including the snapshot and thumbnail pictures, already clip to what they draw
+        final boolean cull = mHasPageWindow && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                && canvas.isHardwareAccelerated();
+        final int clipTop = cull ? Math.max(mClipRect.top, mPageWindowTop) : mClipRect.top;
+        final int clipBottom = cull ? Math.min(mClipRect.bottom, mPageWindowBottom) : mClipRect.bottom;
+        final int first = findFirstSection(clipTop);
+        final int last = findLastSection(clipBottom);
+        if (cull) {
+            mFirstDrawn = first;
+            mLastDrawn = last;
+        }
+        final int paddingTop = getPaddingTop();
+        for (int i = first; i <= last; i++) {
+            final Section section = mSections.get(i);
+            final int top = paddingTop + section.top;
+            canvas.save();
+            canvas.translate(getPaddingLeft(), top);
+            section.layout.draw(canvas);
+            canvas.restore();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mLayoutWidth > 0 && !isPaginationComplete()) {
+            restartPagination();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelPagination();
+        super.onDetachedFromWindow();
+    }
+}
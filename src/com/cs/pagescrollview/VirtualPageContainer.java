@@ -0,0 +1,196 @@
+package com.cs.pagescrollview;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * The single child a {@link PageScrollView} hosts when it is driven by a
+ * {@link PageAdapter}. It is as tall as all pages together so the page math of
+ * PageScrollView keeps working, but it only holds views for the pages inside
+ * the current window.
+ */
+class VirtualPageContainer extends ViewGroup {
+    /**
+     * Returned by {@link #updateWindow(int)} when views of pages were removed
+     */
+    static final int PAGES_RECYCLED = 1;
+    /**
+     * Returned by {@link #updateWindow(int)} when views of pages were added
+     */
+    static final int PAGES_ADDED = 2;
+
+    private final PageAdapter mAdapter;
+    private final SparseArray<View> mActiveViews = new SparseArray<View>();
+    private final SparseIntArray mActiveTypes = new SparseIntArray();
+    private final SparseArray<ArrayList<View>> mScrapViews = new SparseArray<ArrayList<View>>();
+    private final DataSetObserver mObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            recycleAll();
+            requestLayout();
+        }
+
+        @Override
+        public void onInvalidated() {
+            onChanged();
+        }
+    };
+    private int mPageHeight;
+    private int mOffscreenPageLimit;
+    private int mFirstPosition;
+    private int mLastPosition = -1;
+
+    VirtualPageContainer(Context context, PageAdapter adapter, int offscreenPageLimit) {
+        super(context);
+        mAdapter = adapter;
+        mOffscreenPageLimit = offscreenPageLimit;
+    }
+
+    PageAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    void setOffscreenPageLimit(int limit) {
+        if (mOffscreenPageLimit != limit) {
+            mOffscreenPageLimit = limit;
+            requestLayout();
+        }
+    }
+
+    void setPageHeight(int pageHeight) {
+        if (mPageHeight != pageHeight) {
+            mPageHeight = pageHeight;
+            recycleAll();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAdapter.registerDataSetObserver(mObserver);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAdapter.unregisterDataSetObserver(mObserver);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int childWidthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+        final int childHeightSpec = MeasureSpec.makeMeasureSpec(mPageHeight, MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            getChildAt(i).measure(childWidthSpec, childHeightSpec);
+        }
+        setMeasuredDimension(width, mPageHeight * mAdapter.getCount());
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final int width = r - l;
+        for (int i = 0; i < mActiveViews.size(); i++) {
+            final int top = mActiveViews.keyAt(i) * mPageHeight;
+            mActiveViews.valueAt(i).layout(0, top, width, top + mPageHeight);
+        }
+    }
+
+    /**
+     * Makes sure exactly the pages around the visible range exist.
+     *
+     * @param scrollY the scroll offset of the PageScrollView
+     * @return {@link #PAGES_RECYCLED} and {@link #PAGES_ADDED} combined for
+     *         what changed, 0 if the same pages are still there
+     */
+    int updateWindow(int scrollY) {
+        final int count = mAdapter.getCount();
+        if (mPageHeight <= 0 || count == 0 || getWidth() == 0) {
+            final int changes = mActiveViews.size() > 0 ? PAGES_RECYCLED : 0;
+            recycleAll();
+            return changes;
+        }
+        final int firstVisible = scrollY / mPageHeight;
+        final int lastVisible = (scrollY + mPageHeight - 1) / mPageHeight;
+        final int first = Math.max(0, firstVisible - mOffscreenPageLimit);
+        final int last = Math.min(count - 1, lastVisible + mOffscreenPageLimit);
+        if (first == mFirstPosition && last == mLastPosition) {
+            return 0;
+        }
+        int changes = 0;
+        for (int i = mActiveViews.size() - 1; i >= 0; i--) {
+            final int position = mActiveViews.keyAt(i);
+            if (position < first || position > last) {
+                recycle(position, mActiveViews.valueAt(i));
+                mActiveViews.removeAt(i);
+                mActiveTypes.delete(position);
+                changes |= PAGES_RECYCLED;
+            }
+        }
+        for (int position = first; position <= last; position++) {
+            if (mActiveViews.get(position) == null) {
+                mActiveViews.put(position, obtainView(position));
+                changes |= PAGES_ADDED;
+            }
+        }
+        mFirstPosition = first;
+        mLastPosition = last;
+        invalidate();
+        return changes;
+    }
+
+    private View obtainView(int position) {
+        final int type = mAdapter.getItemViewType(position);
+        final ArrayList<View> scrap = mScrapViews.get(type);
+        View convertView = null;
+        if (scrap != null && !scrap.isEmpty()) {
+            convertView = scrap.remove(scrap.size() - 1);
+        }
+        final View child = mAdapter.getView(position, convertView, this);
+        mActiveTypes.put(position, type);
+        LayoutParams lp = child.getLayoutParams();
+        if (lp == null) {
+            lp = generateDefaultLayoutParams();
+        }
+        addViewInLayout(child, -1, lp, true);
+        // Measure and place the new page directly, the rest of the tree does not change size
+        final int width = getWidth();
+        child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(mPageHeight, MeasureSpec.EXACTLY));
+        final int top = position * mPageHeight;
+        child.layout(0, top, width, top + mPageHeight);
+        return child;
+    }
+
+    private void recycle(int position, View child) {
+        removeViewInLayout(child);
+        final int type = mActiveTypes.get(position);
+        ArrayList<View> scrap = mScrapViews.get(type);
+        if (scrap == null) {
+            scrap = new ArrayList<View>();
+            mScrapViews.put(type, scrap);
+        }
+        scrap.add(child);
+    }
+
+    private void recycleAll() {
+        for (int i = mActiveViews.size() - 1; i >= 0; i--) {
+            recycle(mActiveViews.keyAt(i), mActiveViews.valueAt(i));
+        }
+        mActiveViews.clear();
+        mActiveTypes.clear();
+        mFirstPosition = 0;
+        mLastPosition = -1;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+    }
+}
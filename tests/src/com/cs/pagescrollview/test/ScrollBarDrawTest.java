@@ -0,0 +1,59 @@
+package com.cs.pagescrollview.test;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+import com.cs.pagescrollview.PageScrollView;
+
+/**
+ * The scroll bar is drawn on every frame of a page turn, its geometry is
+ * cached so drawing it must not allocate.
+ */
+public class ScrollBarDrawTest extends AndroidTestCase {
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int DRAWS = 100;
+
+    /**
+     * Exposes onDraw, which draws the scroll bar on top of the content.
+     */
+    private static final class DrawingPageScrollView extends PageScrollView {
+        DrawingPageScrollView(Context context) {
+            super(context);
+        }
+
+        void drawForTest(Canvas canvas) {
+            onDraw(canvas);
+        }
+    }
+
+    public void testDrawDoesNotAllocate() {
+        final DrawingPageScrollView view = new DrawingPageScrollView(getContext());
+        final View content = new View(getContext());
+        content.setMinimumHeight(HEIGHT * 10);
+        view.addView(content);
+        view.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.scrollTo(0, HEIGHT * 3);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        // The first draw may initialize native paint state
+        view.drawForTest(canvas);
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            for (int i = 0; i < DRAWS; i++) {
+                view.drawForTest(canvas);
+            }
+            assertEquals("allocations in " + DRAWS + " draws", 0, Debug.getThreadAllocCount());
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+}